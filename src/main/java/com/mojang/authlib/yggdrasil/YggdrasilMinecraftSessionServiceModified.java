@@ -5,6 +5,7 @@ import com.mojang.authlib.HttpAuthenticationService;
 import com.mojang.authlib.exceptions.AuthenticationException;
 import com.mojang.authlib.exceptions.AuthenticationUnavailableException;
 import com.mojang.authlib.yggdrasil.response.HasJoinedMinecraftServerResponse;
+import net.canarymod.api.SessionVerifier;
 
 import java.net.URL;
 import java.util.HashMap;
@@ -12,13 +13,14 @@ import java.util.HashMap;
 /**
  * Modified SessionService query class for disabling mismatched session ip
  */
-public class YggdrasilMinecraftSessionServiceModified extends YggdrasilMinecraftSessionService {
+public class YggdrasilMinecraftSessionServiceModified extends YggdrasilMinecraftSessionService implements SessionVerifier {
     private static final URL CHECK_URL = HttpAuthenticationService.constantURL("https://sessionserver.mojang.com/session/minecraft/hasJoined");
 
     protected YggdrasilMinecraftSessionServiceModified(YggdrasilAuthenticationServiceModified authenticationService) {
         super(authenticationService);
     }
 
+    @Override
     public GameProfile hasJoinedServerVerifyIP(GameProfile user, String serverId, String userIP) throws AuthenticationUnavailableException {
         HashMap<String, Object> arguments = new HashMap<String, Object>();
         arguments.put("username", user.getName());
@@ -1,10 +1,13 @@
 package net.canarymod;
 
 import net.canarymod.api.CanaryServer;
+import net.canarymod.api.ServerConfigSnapshot;
 import net.canarymod.api.channels.CanaryChannelManager;
 import net.canarymod.api.commandsys.CanaryPlayerSelector;
 import net.canarymod.api.factory.CanaryFactory;
 import net.canarymod.api.scoreboard.CanaryScoreboardManager;
+import net.canarymod.api.world.CanaryWorld;
+import net.canarymod.api.world.World;
 import net.canarymod.bansystem.BanManager;
 import net.canarymod.commandsys.CommandDependencyException;
 import net.canarymod.commandsys.CommandList;
@@ -13,13 +16,15 @@ import net.canarymod.commandsys.DuplicateCommandException;
 import net.canarymod.config.Configuration;
 import net.canarymod.database.DatabaseLoader;
 import net.canarymod.help.HelpManager;
-import net.canarymod.hook.HookExecutor;
+import net.canarymod.hook.CanaryHookExecutor;
 import net.canarymod.kit.KitProvider;
 import net.canarymod.motd.CanaryMessageOfTheDayListener;
 import net.canarymod.motd.MessageOfTheDay;
 import net.canarymod.permissionsystem.PermissionManager;
 import net.canarymod.plugin.DefaultPluginManager;
 import net.canarymod.plugin.PluginLangLoader;
+import net.canarymod.profiler.ProfilingHookExecutor;
+import net.canarymod.profiler.TickProfiler;
 import net.canarymod.user.OperatorsProvider;
 import net.canarymod.user.ReservelistProvider;
 import net.canarymod.user.UserAndGroupsProvider;
@@ -58,7 +63,7 @@ public class CanaryMod extends Canary {
         // Initialize the subsystems that do not rely on others
         this.commandManager = new CommandManager();
         // this.permissionManager = new PermissionManager();
-        this.hookExecutor = new HookExecutor();
+        this.hookExecutor = TickProfiler.isEnabled() ? new ProfilingHookExecutor() : new CanaryHookExecutor();
         this.helpManager = new HelpManager();
         this.banManager = new BanManager();
         this.whitelist = new WhitelistProvider();
@@ -149,6 +154,11 @@ public class CanaryMod extends Canary {
         // ((CanaryConfigurationManager) instance.server.getConfigurationManager()).reload();
         // TODO RCON + QUERY?
         ((CanaryServer) instance.server).getHandle().reload();
+        // Swap in the reloaded values for the server and the loaded worlds
+        ServerConfigSnapshot.reload();
+        for (World world : instance.server.getWorldManager().getAllWorlds()) {
+            ((CanaryWorld) world).reloadConfigSnapshot();
+        }
     }
 
     static void setLoggerLevelDynamic() {
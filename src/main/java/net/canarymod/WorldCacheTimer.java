@@ -1,6 +1,7 @@
 package net.canarymod;
 
 import net.canarymod.api.world.CanaryWorld;
+import net.canarymod.tasks.TickScheduler;
 import net.visualillusionsent.utils.TaskManager;
 
 /**
@@ -30,7 +31,15 @@ public class WorldCacheTimer implements Runnable {
         boolean resched = false;
         if (scheduledForRemove) {
             if (this.world.getPlayerList().isEmpty() && Canary.getServer().getWorldManager().getAllWorlds().size() > 1) {
-                Canary.getServer().getWorldManager().unloadWorld(world.getName(), world.getType(), false);
+                // Unload on the server thread, not on this timer's
+                TickScheduler.getInstance().schedule(Canary.instance(), new Runnable() {
+                    @Override
+                    public void run() {
+                        if (world.getPlayerList().isEmpty() && Canary.getServer().getWorldManager().worldIsLoaded(world.getFqName())) {
+                            Canary.getServer().getWorldManager().unloadWorld(world.getName(), world.getType(), false);
+                        }
+                    }
+                }, 0L, TickScheduler.Priority.LOW);
             }
             else {
                 scheduledForRemove = false;
@@ -220,6 +220,25 @@ public class CanaryServer implements Server {
         return Canary.commands().parseCommand(cmdBlockLogic, cmdName, args);
     }
 
+    /**
+     * Runs a Canary command from a command block whose {@link net.canarymod.hook.command.CommandBlockCommandHook}
+     * was already called, without calling a {@link ConsoleCommandHook} for it again
+     *
+     * @param args
+     *         the command split at spaces
+     * @param cmdBlockLogic
+     *         the command block
+     *
+     * @return true if a Canary command handled it
+     */
+    public boolean commandBlockCommand(String[] args, CommandBlockLogic cmdBlockLogic) {
+        String cmdName = args[0];
+        if (cmdName.startsWith("/")) {
+            cmdName = cmdName.substring(1);
+        }
+        return Canary.commands().parseCommand(cmdBlockLogic, cmdName, args);
+    }
+
     @Override
     public void executeVanillaCommand(MessageReceiver caller, String command) {
         ICommandSender sender;
@@ -0,0 +1,39 @@
+package net.canarymod.api;
+
+import com.google.common.base.Charsets;
+import com.mojang.authlib.GameProfile;
+
+import java.util.UUID;
+
+/**
+ * A {@link SessionVerifier} that accepts every login without any network access, handing out the offline UUID for
+ * the name. Meant for load testing logins locally, never for a public server.
+ * <p/>
+ * An optional delay stands in for the time the session server takes to answer.
+ */
+public class LocalSessionVerifier implements SessionVerifier {
+    private final long delay;
+
+    /**
+     * Constructs a new local verifier
+     *
+     * @param delay
+     *         how long to take per verification, in milliseconds
+     */
+    public LocalSessionVerifier(long delay) {
+        this.delay = delay;
+    }
+
+    @Override
+    public GameProfile hasJoinedServerVerifyIP(GameProfile user, String serverId, String userIP) {
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            }
+            catch (InterruptedException interruptedexception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return new GameProfile(UUID.nameUUIDFromBytes(("OfflinePlayer:" + user.getName()).getBytes(Charsets.UTF_8)), user.getName());
+    }
+}
@@ -0,0 +1,139 @@
+package net.canarymod.api;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mojang.authlib.GameProfile;
+import com.mojang.authlib.exceptions.AuthenticationUnavailableException;
+import net.canarymod.Canary;
+import net.minecraft.server.MinecraftServer;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs login session verification on a bounded pool and throttles logins per address.
+ * <p/>
+ * Once all {@code login-auth-threads} threads are busy and {@code login-auth-queue} logins wait, further logins are
+ * turned away instead of piling up. {@code login-ip-throttle-ms} is the least time between two logins from one
+ * address. {@code session-verifier} set to {@code local} swaps in a {@link LocalSessionVerifier} for load testing,
+ * waiting {@code session-verifier-local-delay-ms} per login. A reload of the configuration applies the thread count
+ * and the throttle; the queue and the verifier are set up at start up.
+ */
+public class LoginAuthenticator {
+    private static final ThreadPoolExecutor authenticators;
+    private static final Map<InetAddress, Long> lastLogins = new HashMap<InetAddress, Long>();
+    private static volatile SessionVerifier verifier;
+
+    static {
+        ServerConfigSnapshot cfg = ServerConfigSnapshot.get();
+        authenticators = new ThreadPoolExecutor(cfg.loginAuthThreads, cfg.loginAuthThreads, 30L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(cfg.loginAuthQueue),
+                new ThreadFactoryBuilder().setNameFormat("User Authenticator #%d").setDaemon(true).build());
+        authenticators.allowCoreThreadTimeOut(true);
+        if (cfg.localSessionVerifier) {
+            Canary.log.warn("Logins are verified locally, every name is let in. Do not run a public server like this!");
+            verifier = new LocalSessionVerifier(cfg.localSessionVerifierDelayMillis);
+        }
+        ServerConfigSnapshot.addListener(new ServerConfigSnapshot.Listener() {
+            @Override
+            public void snapshotReloaded(ServerConfigSnapshot snapshot) {
+                int threads = snapshot.loginAuthThreads;
+
+                // Grow the maximum first and shrink it last, the core size may never exceed it
+                if (threads > authenticators.getMaximumPoolSize()) {
+                    authenticators.setMaximumPoolSize(threads);
+                    authenticators.setCorePoolSize(threads);
+                }
+                else {
+                    authenticators.setCorePoolSize(threads);
+                    authenticators.setMaximumPoolSize(threads);
+                }
+            }
+        });
+    }
+
+    /**
+     * Counts a login from an address against the throttle
+     *
+     * @param address
+     *         the address logging in
+     *
+     * @return true if the login may go ahead
+     */
+    public static boolean allowLogin(InetAddress address) {
+        long throttle = ServerConfigSnapshot.get().loginThrottleMillis;
+
+        if (throttle == 0 || address == null) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+
+        synchronized (lastLogins) {
+            if (lastLogins.size() > 1024) {
+                Iterator<Long> iterator = lastLogins.values().iterator();
+                while (iterator.hasNext()) {
+                    if (now - iterator.next() >= throttle) {
+                        iterator.remove();
+                    }
+                }
+            }
+            Long last = lastLogins.put(address, now);
+            return last == null || now - last >= throttle;
+        }
+    }
+
+    /**
+     * Queues a session verification
+     *
+     * @param task
+     *         the verification
+     *
+     * @return false if too many verifications are waiting already and the login should be refused
+     */
+    public static boolean submit(Runnable task) {
+        try {
+            authenticators.execute(task);
+            return true;
+        }
+        catch (RejectedExecutionException rejectedexecutionexception) {
+            return false;
+        }
+    }
+
+    /**
+     * Verifies a login with the current {@link SessionVerifier}
+     *
+     * @param server
+     *         the server
+     * @param user
+     *         the profile the client claims
+     * @param serverId
+     *         the server hash
+     * @param userIP
+     *         the address the player connects from
+     *
+     * @return the verified profile, or null if the session is invalid
+     *
+     * @throws AuthenticationUnavailableException
+     *         if the verification could not be done
+     */
+    public static GameProfile verify(MinecraftServer server, GameProfile user, String serverId, String userIP) throws AuthenticationUnavailableException {
+        SessionVerifier current = verifier != null ? verifier : (SessionVerifier) server.aB();
+
+        return current.hasJoinedServerVerifyIP(user, serverId, userIP);
+    }
+
+    /**
+     * Replaces how sessions are verified
+     *
+     * @param sessionVerifier
+     *         the verifier to use, or null for the server's own session service
+     */
+    public static void setVerifier(SessionVerifier sessionVerifier) {
+        verifier = sessionVerifier;
+    }
+}
@@ -0,0 +1,219 @@
+package net.canarymod.api;
+
+import net.canarymod.api.world.CanaryWorld;
+import net.canarymod.api.world.WorldConfigSnapshot;
+import net.minecraft.entity.Entity;
+import net.minecraft.pathfinding.PathEntity;
+import net.minecraft.pathfinding.PathPoint;
+import net.minecraft.util.BlockPos;
+import net.minecraft.util.MathHelper;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Remembers the last path searches of a navigator so that repeated searches with the same input are not run again.
+ * <p/>
+ * Mobs chasing a target search again every few ticks. A search is keyed by the size of the entity, the block it starts
+ * from, the goal block and the search range. The cache belongs to one navigator, since the door, water and swimming
+ * settings of its path finder change the path and are set per entity. A remembered path is valid while every chunk it
+ * passes through is still loaded with the same {@link Chunk#getModificationCount()}, a failed search while the chunks
+ * of its start and goal are, and either for at most {@code path-cache-ticks} ticks so blocks changed off the path get
+ * picked up. Reloading the configuration forgets every search.
+ * <p/>
+ * Used on the thread ticking the world only.
+ */
+public final class PathCache {
+    /**
+     * The search towards a block
+     */
+    public static final int BLOCK = 0;
+    /**
+     * The search towards an entity
+     */
+    public static final int ENTITY = 1;
+
+    // Bumped on every reload, searches remembered under an older generation are dropped
+    private static volatile int generation;
+
+    static {
+        WorldConfigSnapshot.addListener(new WorldConfigSnapshot.Listener() {
+            @Override
+            public void snapshotReloaded(CanaryWorld world, WorldConfigSnapshot snapshot) {
+                ++generation;
+            }
+        });
+    }
+
+    private final Search[] searches = new Search[2];
+
+    /**
+     * Checks whether a search with the given input was done before and whether its result still holds
+     *
+     * @param kind
+     *         {@link #BLOCK} or {@link #ENTITY}
+     * @param world
+     *         the world searched in
+     * @param entity
+     *         the entity the path is for
+     * @param goal
+     *         the goal block
+     * @param range
+     *         the search range
+     *
+     * @return true if {@link #getPath(int)} gives the result
+     */
+    public boolean isKnown(int kind, World world, Entity entity, BlockPos goal, float range) {
+        Search search = searches[kind];
+
+        if (search == null) {
+            return false;
+        }
+        int ttl = ServerConfigSnapshot.get().pathCacheTicks;
+
+        if (search.world != world || search.generation != generation || world.K() - search.tick > ttl
+                || !search.key.matches(entity, goal, range) || !search.isUnchanged()) {
+            searches[kind] = null;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets a copy of the remembered path, so the caller may follow it on its own
+     *
+     * @param kind
+     *         {@link #BLOCK} or {@link #ENTITY}
+     *
+     * @return the path, or null if the search found none
+     */
+    public PathEntity getPath(int kind) {
+        PathEntity path = searches[kind].path;
+
+        return path == null ? null : copy(path);
+    }
+
+    /**
+     * Remembers the result of a search
+     *
+     * @param kind
+     *         {@link #BLOCK} or {@link #ENTITY}
+     * @param world
+     *         the world searched in
+     * @param entity
+     *         the entity the path is for
+     * @param goal
+     *         the goal block
+     * @param range
+     *         the search range
+     * @param path
+     *         the path found, or null
+     */
+    public void remember(int kind, World world, Entity entity, BlockPos goal, float range, PathEntity path) {
+        if (ServerConfigSnapshot.get().pathCacheTicks == 0) {
+            searches[kind] = null;
+            return;
+        }
+        searches[kind] = new Search(world, path == null ? null : copy(path), new Key(entity, goal, range));
+    }
+
+    /**
+     * Forgets all remembered searches
+     */
+    public void clear() {
+        searches[BLOCK] = null;
+        searches[ENTITY] = null;
+    }
+
+    // The caller advances its own path, so keep one it never sees
+    private static PathEntity copy(PathEntity path) {
+        PathPoint[] points = new PathPoint[path.d()];
+
+        for (int i0 = 0; i0 < points.length; ++i0) {
+            points[i0] = path.a(i0);
+        }
+        return new PathEntity(points);
+    }
+
+    private static final class Key {
+        final float width, height, range;
+        final int fromX, fromY, fromZ;
+        final int toX, toY, toZ;
+
+        Key(Entity entity, BlockPos goal, float range) {
+            this.width = entity.J;
+            this.height = entity.K;
+            this.range = range;
+            // The search starts at the lowest corner of the bounding box
+            this.fromX = MathHelper.c(entity.aQ().a);
+            this.fromY = MathHelper.c(entity.aQ().b);
+            this.fromZ = MathHelper.c(entity.aQ().c);
+            this.toX = goal.n();
+            this.toY = goal.o();
+            this.toZ = goal.p();
+        }
+
+        boolean matches(Entity entity, BlockPos goal, float range) {
+            return toX == goal.n() && toY == goal.o() && toZ == goal.p() && this.range == range && width == entity.J && height == entity.K
+                    && fromX == MathHelper.c(entity.aQ().a) && fromY == MathHelper.c(entity.aQ().b) && fromZ == MathHelper.c(entity.aQ().c);
+        }
+    }
+
+    private static final class Search {
+        final World world;
+        final PathEntity path;
+        final Key key;
+        final long tick;
+        final int generation;
+        final Chunk[] chunks;
+        final int[] modCounts;
+
+        Search(World world, PathEntity path, Key key) {
+            this.world = world;
+            this.path = path;
+            this.key = key;
+            this.tick = world.K();
+            this.generation = PathCache.generation;
+
+            List<Chunk> read = new ArrayList<Chunk>(4);
+
+            addChunk(read, key.fromX >> 4, key.fromZ >> 4);
+            addChunk(read, key.toX >> 4, key.toZ >> 4);
+            if (path != null) {
+                for (int i0 = 0; i0 < path.d(); ++i0) {
+                    PathPoint point = path.a(i0);
+
+                    addChunk(read, point.a >> 4, point.c >> 4);
+                }
+            }
+            this.chunks = read.toArray(new Chunk[read.size()]);
+            this.modCounts = new int[chunks.length];
+            for (int i0 = 0; i0 < chunks.length; ++i0) {
+                modCounts[i0] = chunks[i0].getModificationCount();
+            }
+        }
+
+        private void addChunk(List<Chunk> read, int cx, int cz) {
+            for (Chunk chunk : read) {
+                if (chunk.a == cx && chunk.b == cz) {
+                    return;
+                }
+            }
+            if (world.e(new BlockPos(cx << 4, 64, cz << 4))) {
+                read.add(world.a(cx, cz));
+            }
+        }
+
+        boolean isUnchanged() {
+            for (int i0 = 0; i0 < chunks.length; ++i0) {
+                // An unloaded chunk is never loaded again as the same object
+                if (!chunks[i0].o() || chunks[i0].getModificationCount() != modCounts[i0]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
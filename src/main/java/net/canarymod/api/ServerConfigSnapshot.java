@@ -0,0 +1,215 @@
+package net.canarymod.api;
+
+import net.canarymod.config.Configuration;
+import net.canarymod.config.ServerConfiguration;
+import net.visualillusionsent.utils.PropertiesFile;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The server configuration values of the performance settings, read from the configuration file once.
+ * <p/>
+ * These settings have no typed getter in {@link ServerConfiguration}, so their keys are read here, out of range values
+ * are clamped, and the code using them reads the final fields of {@link #get()}. The snapshot is replaced as a whole
+ * when the configuration is reloaded; caches and pools built from its values register a {@link Listener} to follow.
+ * Values marked as read at start up only take effect after a restart.
+ */
+public final class ServerConfigSnapshot {
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+    private static volatile ServerConfigSnapshot current;
+
+    /**
+     * Told when the server configuration snapshot was replaced
+     */
+    public interface Listener {
+
+        /**
+         * Called on the thread that reloaded the configuration, after the new snapshot is in place
+         *
+         * @param snapshot
+         *         the new snapshot
+         */
+        void snapshotReloaded(ServerConfigSnapshot snapshot);
+    }
+
+    /**
+     * Full chunk packets kept per world, {@code chunk-payload-cache-size}, 0 turns the cache off, -1 sizes it by the
+     * view distance and the players in the world
+     */
+    public final int chunkPayloadCacheSize;
+    /**
+     * Most chunks sent to a player per tick, {@code chunk-send-max-per-tick}
+     */
+    public final int chunkSendMaxPerTick;
+    /**
+     * Whether the light checks of every block change are queued, {@code lighting-deferred}
+     */
+    public final boolean lightingDeferred;
+    /**
+     * Most queued light checks run per world tick, {@code lighting-batch-size}
+     */
+    public final int lightingBatchSize;
+    /**
+     * Ticks a path search is reused for, {@code path-cache-ticks}, 0 turns reuse off
+     */
+    public final int pathCacheTicks;
+    /**
+     * Milliseconds the server list status packet is reused for, {@code server-list-cache-ms}
+     */
+    public final long serverListCacheMillis;
+    /**
+     * Server list pings allowed per address and second, {@code server-list-ping-limit}, 0 for no limit
+     */
+    public final int serverListPingLimit;
+    /**
+     * Time the command blocks of a world may take per tick, {@code command-block-tick-budget-ms}, 0 for no limit
+     */
+    public final long commandBlockBudgetNanos;
+    /**
+     * Map updates sent to a player per tick, {@code map-updates-per-tick}, 0 for no limit
+     */
+    public final int mapUpdatesPerTick;
+    /**
+     * Most lines written to the console at once, {@code console-batch-lines}
+     */
+    public final int consoleBatchLines;
+    /**
+     * Lines the console keeps while the terminal falls behind, {@code console-buffer-lines}, read at start up only
+     */
+    public final int consoleBufferLines;
+    /**
+     * Which lines are lost once the console buffer is full, {@code console-overflow-policy}, read at start up only
+     */
+    public final String consoleOverflowPolicy;
+    /**
+     * Time the {@link net.canarymod.tasks.TickScheduler} may take per tick, {@code scheduler-tick-budget-ms},
+     * {@link Long#MAX_VALUE} for no limit
+     */
+    public final long schedulerBudgetNanos;
+    /**
+     * Whether the tick profiler runs, {@code tick-profiler-enabled}, read at start up only
+     */
+    public final boolean tickProfilerEnabled;
+    /**
+     * Ticks between two detailed profiler samples, {@code tick-profiler-sample-interval}
+     */
+    public final int tickProfilerSampleInterval;
+    /**
+     * Length from which a tick counts as slow, {@code tick-profiler-slow-tick-ms}
+     */
+    public final long tickProfilerSlowTickNanos;
+    /**
+     * Ticks the flight recorder keeps, {@code tick-profiler-flight-recorder-ticks}, read at start up only
+     */
+    public final int tickProfilerRecorderTicks;
+    /**
+     * Where slow tick dumps are written, {@code tick-profiler-dump-directory}, read at start up only
+     */
+    public final String tickProfilerDumpDirectory;
+    /**
+     * Port of the profiler metrics endpoint, {@code tick-profiler-http-port}, 0 for none, read at start up only
+     */
+    public final int tickProfilerHttpPort;
+    /**
+     * Threads verifying login sessions, {@code login-auth-threads}
+     */
+    public final int loginAuthThreads;
+    /**
+     * Logins that may wait for verification, {@code login-auth-queue}, read at start up only
+     */
+    public final int loginAuthQueue;
+    /**
+     * Least time between two logins from one address, {@code login-ip-throttle-ms}, 0 for no limit
+     */
+    public final long loginThrottleMillis;
+    /**
+     * Whether logins are verified locally for load testing, {@code session-verifier} set to {@code local}
+     */
+    public final boolean localSessionVerifier;
+    /**
+     * Time a local verification waits, {@code session-verifier-local-delay-ms}
+     */
+    public final long localSessionVerifierDelayMillis;
+
+    ServerConfigSnapshot(ServerConfiguration server) {
+        PropertiesFile cfg = server.getFile();
+
+        chunkPayloadCacheSize = Math.max(-1, cfg.getInt("chunk-payload-cache-size", -1));
+        chunkSendMaxPerTick = Math.max(1, cfg.getInt("chunk-send-max-per-tick", 16));
+        lightingDeferred = cfg.getBoolean("lighting-deferred", false);
+        lightingBatchSize = Math.max(1, cfg.getInt("lighting-batch-size", 4096));
+        pathCacheTicks = Math.max(0, cfg.getInt("path-cache-ticks", 20));
+        serverListCacheMillis = Math.max(0, cfg.getInt("server-list-cache-ms", 1000));
+        serverListPingLimit = Math.max(0, cfg.getInt("server-list-ping-limit", 0));
+        commandBlockBudgetNanos = Math.max(0, cfg.getInt("command-block-tick-budget-ms", 0)) * 1000000L;
+        mapUpdatesPerTick = Math.max(0, cfg.getInt("map-updates-per-tick", 0));
+        consoleBatchLines = Math.max(1, cfg.getInt("console-batch-lines", 256));
+        consoleBufferLines = Math.max(16, cfg.getInt("console-buffer-lines", 4096));
+        consoleOverflowPolicy = cfg.getString("console-overflow-policy", "drop-oldest");
+
+        long budget = cfg.getInt("scheduler-tick-budget-ms", 10);
+        schedulerBudgetNanos = budget > 0 ? budget * 1000000L : Long.MAX_VALUE;
+
+        tickProfilerEnabled = cfg.getBoolean("tick-profiler-enabled", false);
+        tickProfilerSampleInterval = Math.max(1, cfg.getInt("tick-profiler-sample-interval", 20));
+        tickProfilerSlowTickNanos = Math.max(1, cfg.getInt("tick-profiler-slow-tick-ms", 100)) * 1000000L;
+        tickProfilerRecorderTicks = Math.max(1, cfg.getInt("tick-profiler-flight-recorder-ticks", 200));
+        tickProfilerDumpDirectory = cfg.getString("tick-profiler-dump-directory", "logs/slow-ticks");
+        tickProfilerHttpPort = cfg.getInt("tick-profiler-http-port", 0);
+
+        loginAuthThreads = Math.max(1, cfg.getInt("login-auth-threads", 4));
+        loginAuthQueue = Math.max(1, cfg.getInt("login-auth-queue", 256));
+        loginThrottleMillis = Math.max(0, cfg.getInt("login-ip-throttle-ms", 0));
+        localSessionVerifier = "local".equalsIgnoreCase(cfg.getString("session-verifier", "mojang"));
+        localSessionVerifierDelayMillis = Math.max(0, cfg.getInt("session-verifier-local-delay-ms", 0));
+    }
+
+    /**
+     * Gets the snapshot of the current server configuration
+     *
+     * @return the snapshot
+     */
+    public static ServerConfigSnapshot get() {
+        ServerConfigSnapshot snapshot = current;
+
+        if (snapshot == null) {
+            // Racing threads read the same file, whichever snapshot stays holds the same values
+            snapshot = new ServerConfigSnapshot(Configuration.getServerConfig());
+            current = snapshot;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Reads the server configuration again and tells every listener, called once the configuration was reloaded
+     */
+    public static void reload() {
+        ServerConfigSnapshot snapshot = new ServerConfigSnapshot(Configuration.getServerConfig());
+
+        current = snapshot;
+        for (Listener listener : listeners) {
+            listener.snapshotReloaded(snapshot);
+        }
+    }
+
+    /**
+     * Adds a listener told of every snapshot reload
+     *
+     * @param listener
+     *         the listener
+     */
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addListener(Listener)}
+     *
+     * @param listener
+     *         the listener
+     */
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+}
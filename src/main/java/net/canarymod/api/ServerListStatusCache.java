@@ -0,0 +1,111 @@
+package net.canarymod.api;
+
+import net.minecraft.network.ServerStatusResponse;
+import net.minecraft.network.status.server.S00PacketServerInfo;
+import net.minecraft.server.MinecraftServer;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the server list status packet between pings and limits how often a single address may ping.
+ * <p/>
+ * The status only changes when the server swaps the player count and sample, the MOTD or the favicon of its
+ * {@link ServerStatusResponse}, so a packet is reused until one of them is a different object or
+ * {@code server-list-cache-ms} passed. Pings arrive on network threads, hence the synchronization. Reloading the
+ * configuration drops the packet and the ping counts.
+ */
+public class ServerListStatusCache {
+    private final Map<InetAddress, int[]> pings = new HashMap<InetAddress, int[]>();
+    private long pingWindow;
+
+    private S00PacketServerInfo packet;
+    private Object players;
+    private Object motd;
+    private String favicon;
+    private long built;
+
+    public ServerListStatusCache() {
+        ServerConfigSnapshot.addListener(new ServerConfigSnapshot.Listener() {
+            @Override
+            public void snapshotReloaded(ServerConfigSnapshot snapshot) {
+                clear();
+            }
+        });
+    }
+
+    /**
+     * Gets the status packet for the current state of the server, building it again only if something changed
+     *
+     * @param server
+     *         the server
+     *
+     * @return the status packet, which may be shared between connections
+     */
+    public synchronized S00PacketServerInfo getPacket(MinecraftServer server) {
+        ServerStatusResponse current = server.aE();
+        long now = System.currentTimeMillis();
+
+        if (packet == null || now - built >= ServerConfigSnapshot.get().serverListCacheMillis || players != current.b() || motd != current.a() || favicon != current.d()) {
+            // Copy the response so the server's own one is never handed out
+            ServerStatusResponse ssr = new ServerStatusResponse();
+            ssr.a(new ServerStatusResponse.MinecraftProtocolVersionIdentifier(server.F(), server.getProtocolVersion()));
+            ServerStatusResponse.PlayerCountData ssrpcd = new ServerStatusResponse.PlayerCountData(current.b().a(), current.b().b());
+            ssrpcd.a(current.b().c());
+            ssr.a(ssrpcd);
+            ssr.a(current.a());
+            ssr.a(current.d());
+
+            packet = new S00PacketServerInfo(ssr);
+            players = current.b();
+            motd = current.a();
+            favicon = current.d();
+            built = now;
+        }
+        return packet;
+    }
+
+    /**
+     * Counts a ping from an address against {@code server-list-ping-limit} pings per second
+     *
+     * @param address
+     *         the pinging address
+     *
+     * @return true if the ping is within the limit, or no limit is set
+     */
+    public boolean allowPing(InetAddress address) {
+        int pingLimit = ServerConfigSnapshot.get().serverListPingLimit;
+
+        if (pingLimit == 0 || address == null) {
+            return true;
+        }
+        synchronized (pings) {
+            long window = System.currentTimeMillis() / 1000L;
+
+            if (window != pingWindow) {
+                pingWindow = window;
+                pings.clear();
+            }
+            int[] count = pings.get(address);
+
+            if (count == null) {
+                count = new int[1];
+                pings.put(address, count);
+            }
+            return ++count[0] <= pingLimit;
+        }
+    }
+
+    /**
+     * Drops the status packet and the ping counts
+     */
+    public void clear() {
+        synchronized (this) {
+            packet = null;
+        }
+        synchronized (pings) {
+            pings.clear();
+        }
+    }
+}
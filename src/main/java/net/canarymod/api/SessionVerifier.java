@@ -0,0 +1,30 @@
+package net.canarymod.api;
+
+import com.mojang.authlib.GameProfile;
+import com.mojang.authlib.exceptions.AuthenticationUnavailableException;
+
+/**
+ * Checks that a connecting player joined this server through their own session.
+ * <p/>
+ * The server asks Mojang's session server by default, {@link LocalSessionVerifier} stands in for it when testing.
+ * Verifiers are called from the login authentication threads and have to be thread safe.
+ */
+public interface SessionVerifier {
+
+    /**
+     * Verifies a login
+     *
+     * @param user
+     *         the profile the client claims, only the name is set
+     * @param serverId
+     *         the server hash both client and server computed
+     * @param userIP
+     *         the address the player connects from
+     *
+     * @return the verified profile, or null if the session is invalid
+     *
+     * @throws AuthenticationUnavailableException
+     *         if the verification could not be done
+     */
+    GameProfile hasJoinedServerVerifyIP(GameProfile user, String serverId, String userIP) throws AuthenticationUnavailableException;
+}
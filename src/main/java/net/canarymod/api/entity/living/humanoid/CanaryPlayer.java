@@ -954,7 +954,7 @@ public class CanaryPlayer extends CanaryHuman implements Player {
      */
     @Override
     public void refreshCreativeMode() {
-        if (getModeId() == 1 || Configuration.getWorldConfig(getWorld().getFqName()).getGameMode() == GameMode.CREATIVE) {
+        if (getModeId() == 1 || ((CanaryWorld) getWorld()).getConfigSnapshot().gameMode == GameMode.CREATIVE) {
             getHandle().c.a(WorldSettings.a(1));
         } else {
             getHandle().c.a(WorldSettings.a(0));
@@ -1,6 +1,7 @@
 package net.canarymod.api.entity.living.humanoid.npchelpers;
 
 import net.canarymod.api.CanaryPathFinderNPC;
+import net.canarymod.api.PathCache;
 import net.canarymod.api.PathFinder;
 import net.canarymod.api.entity.living.humanoid.EntityNonPlayableCharacter;
 import net.minecraft.block.Block;
@@ -37,6 +38,7 @@ public abstract class PathNavigateNPC {
     // CanaryMod: variables
     public float searchRange = 100.0F;
     private CanaryPathFinderNPC nav = new CanaryPathFinderNPC(this); // CanaryMod: our var
+    private final PathCache paths = new PathCache(); // CanaryMod: last searches, reused while still valid
 
     public PathNavigateNPC(EntityNonPlayableCharacter entityNPC, World world) {
         this.b = entityNPC;
@@ -65,12 +67,18 @@ public abstract class PathNavigateNPC {
         } else {
             float f0 = this.i();
 
+            // CanaryMod: reuse the last search while nothing it depends on changed
+            if (this.paths.isKnown(PathCache.BLOCK, this.c, this.b, blockpos, f0)) {
+                return this.paths.getPath(PathCache.BLOCK);
+            }
+            //
             this.c.B.a("pathfind");
             BlockPos blockpos1 = new BlockPos(this.b);
             int i0 = (int) (f0 + 8.0F);
             ChunkCache chunkcache = new ChunkCache(this.c, blockpos1.a(-i0, -i0, -i0), blockpos1.a(i0, i0, i0), 0);
             PathEntity pathentity = this.j.a((IBlockAccess) chunkcache, (Entity) this.b, blockpos, f0);
 
+            this.paths.remember(PathCache.BLOCK, this.c, this.b, blockpos, f0, pathentity); // CanaryMod
             this.c.B.b();
             return pathentity;
         }
@@ -92,12 +100,20 @@ public abstract class PathNavigateNPC {
         } else {
             float f0 = this.i();
 
+            // CanaryMod: reuse the last search while nothing it depends on changed
+            BlockPos goal = new BlockPos(entity);
+
+            if (this.paths.isKnown(PathCache.ENTITY, this.c, this.b, goal, f0)) {
+                return this.paths.getPath(PathCache.ENTITY);
+            }
+            //
             this.c.B.a("pathfind");
             BlockPos blockpos = (new BlockPos(this.b)).a();
             int i0 = (int) (f0 + 16.0F);
             ChunkCache chunkcache = new ChunkCache(this.c, blockpos.a(-i0, -i0, -i0), blockpos.a(i0, i0, i0), 0);
             PathEntity pathentity = this.j.a((IBlockAccess) chunkcache, (Entity) this.b, entity, f0);
 
+            this.paths.remember(PathCache.ENTITY, this.c, this.b, goal, f0, pathentity); // CanaryMod
             this.c.B.b();
             return pathentity;
         }
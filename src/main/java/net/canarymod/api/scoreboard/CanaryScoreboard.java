@@ -152,8 +152,10 @@ public class CanaryScoreboard implements Scoreboard {
 
     @Override
     public void clearScoreboardPosition(ScorePosition type) {
+        // One packet shared by every player
+        S3DPacketDisplayScoreboard packet = new S3DPacketDisplayScoreboard(type.getId(), null);
         for (Player p : Canary.getServer().getConfigurationManager().getAllPlayers()) {
-            clearScoreboardPosition(type, p);
+            ((CanaryPlayer) p).getHandle().a.a(packet);
         }
     }
 
@@ -169,8 +171,10 @@ public class CanaryScoreboard implements Scoreboard {
 
     @Override
     public void setScoreboardPosition(ScorePosition type, ScoreObjective objective, World world) {
+        // One packet shared by every player
+        S3DPacketDisplayScoreboard packet = new S3DPacketDisplayScoreboard(type.getId(), ((CanaryScoreObjective) objective).getHandle());
         for (Player player : world.getPlayerList()) {
-            this.setScoreboardPosition(type, objective, player);
+            ((CanaryPlayer) player).getHandle().a.a(packet);
         }
     }
     
@@ -0,0 +1,96 @@
+package net.canarymod.api.world;
+
+import net.minecraft.util.BlockPos;
+import net.minecraft.world.ChunkCoordIntPair;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tells the caches built from the blocks of a world which blocks changed.
+ * <p/>
+ * A cache watches the chunks it read from and is told of every block set in them through the world, so it can check
+ * whether the change touches a block it actually read instead of dropping itself on any change in the chunk. Blocks
+ * written to a chunk directly, as world generation does, are not seen; caches also check that the chunks they read are
+ * still loaded. Used on the thread ticking the world only.
+ */
+public class BlockWatch {
+    private final Map<Long, List<Watcher>> watchers = new HashMap<Long, List<Watcher>>();
+
+    /**
+     * Told of the block changes in the chunks it watches
+     */
+    public interface Watcher {
+
+        /**
+         * Called after a block was set, the watcher must not stop watching from here
+         *
+         * @param blockpos
+         *         the position of the block
+         */
+        void blockChanged(BlockPos blockpos);
+    }
+
+    /**
+     * Tells a watcher of the block changes in a chunk from now on, a watcher added twice is told once
+     *
+     * @param cx
+     *         the chunk x coordinate
+     * @param cz
+     *         the chunk z coordinate
+     * @param watcher
+     *         the watcher
+     */
+    public void watch(int cx, int cz, Watcher watcher) {
+        Long key = ChunkCoordIntPair.a(cx, cz);
+        List<Watcher> list = watchers.get(key);
+
+        if (list == null) {
+            list = new ArrayList<Watcher>(2);
+            watchers.put(key, list);
+        }
+        if (!list.contains(watcher)) {
+            list.add(watcher);
+        }
+    }
+
+    /**
+     * Stops telling a watcher of the block changes in a chunk
+     *
+     * @param cx
+     *         the chunk x coordinate
+     * @param cz
+     *         the chunk z coordinate
+     * @param watcher
+     *         the watcher
+     */
+    public void unwatch(int cx, int cz, Watcher watcher) {
+        Long key = ChunkCoordIntPair.a(cx, cz);
+        List<Watcher> list = watchers.get(key);
+
+        if (list != null && list.remove(watcher) && list.isEmpty()) {
+            watchers.remove(key);
+        }
+    }
+
+    /**
+     * Tells the watchers of a chunk that one of its blocks was set
+     *
+     * @param blockpos
+     *         the position of the block
+     */
+    public void changed(BlockPos blockpos) {
+        if (watchers.isEmpty()) {
+            return;
+        }
+        List<Watcher> list = watchers.get(ChunkCoordIntPair.a(blockpos.n() >> 4, blockpos.p() >> 4));
+
+        if (list != null) {
+            for (int i0 = 0; i0 < list.size(); ++i0) {
+                list.get(i0).blockChanged(blockpos);
+            }
+        }
+    }
+}
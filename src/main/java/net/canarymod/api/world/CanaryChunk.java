@@ -33,6 +33,15 @@ public class CanaryChunk implements Chunk {
         return handle;
     }
 
+    /**
+     * Takes a snapshot of this chunk that can be read from any thread, must be called on the server thread
+     *
+     * @return the snapshot
+     */
+    public ChunkSnapshot getSnapshot() {
+        return ChunkSnapshot.capture(handle);
+    }
+
     @Override
     public int getX() {
         return handle.a;
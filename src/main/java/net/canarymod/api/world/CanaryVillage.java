@@ -3,6 +3,10 @@ package net.canarymod.api.world;
 import net.canarymod.api.entity.living.humanoid.Player;
 import net.canarymod.api.world.position.Location;
 import net.minecraft.util.BlockPos;
+import net.minecraft.village.VillageDoorInfo;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Village wrapper implementation
@@ -111,6 +115,58 @@ public class CanaryVillage implements Village {
         return getHandle().g();
     }
 
+    /**
+     * Gets the number of doors belonging to this Village
+     *
+     * @return the door count
+     */
+    public int getDoorCount() {
+        return getHandle().c();
+    }
+
+    /**
+     * Gets the door of this Village closest to a location
+     *
+     * @param location
+     *         the location to measure from
+     *
+     * @return the location of the closest door, or null if the Village has no doors
+     */
+    public Location getNearestDoor(Location location) {
+        VillageDoorInfo door = getHandle().nearestDoor(new BlockPos(location.getBlockX(), location.getBlockY(), location.getBlockZ()));
+        return door == null ? null : new Location(door.d().n(), door.d().o(), door.d().p());
+    }
+
+    /**
+     * Checks whether a door of this Village is at a location, or a block above or below it
+     *
+     * @param location
+     *         the location to check
+     *
+     * @return true if a Village door is there
+     */
+    public boolean hasDoorAt(Location location) {
+        return getHandle().e(new BlockPos(location.getBlockX(), location.getBlockY(), location.getBlockZ())) != null;
+    }
+
+    /**
+     * Gets the locations of the doors of this Village within a chunk
+     *
+     * @param chunkX
+     *         the chunk x
+     * @param chunkZ
+     *         the chunk z
+     *
+     * @return the door locations, possibly empty
+     */
+    public List<Location> getDoorsInChunk(int chunkX, int chunkZ) {
+        List<Location> doors = new ArrayList<Location>();
+        for (VillageDoorInfo door : getHandle().getDoorsInChunk(chunkX, chunkZ)) {
+            doors.add(new Location(door.d().n(), door.d().o(), door.d().p()));
+        }
+        return doors;
+    }
+
     /**
      * Gets the Village being wrapped
      *
@@ -59,6 +59,7 @@ public class CanaryWorld implements World {
     private DimensionType type;
     public long[] nanoTicks;
     private WorldConfiguration worldConfig;
+    private volatile WorldConfigSnapshot configSnapshot;
     ScheduledFuture cachetask;
 
     /**
@@ -74,11 +75,31 @@ public class CanaryWorld implements World {
         // Init nanotick size
         nanoTicks = new long[100];
         worldConfig = Configuration.getWorldConfig(this.fqName);
+        configSnapshot = WorldConfigSnapshot.read(this.fqName);
         if (Configuration.getServerConfig().isWorldCacheTimerEnabled()) {
             cachetask = TaskManager.scheduleContinuedTaskInMinutes(new WorldCacheTimer(this), Configuration.getServerConfig().getWorldCacheTimeout(), Configuration.getServerConfig().getWorldCacheTimeout());
         }
     }
 
+    /**
+     * Gets the configuration values of this world as they were when the configuration was last loaded
+     *
+     * @return the configuration snapshot
+     */
+    public WorldConfigSnapshot getConfigSnapshot() {
+        return configSnapshot;
+    }
+
+    /**
+     * Replaces the configuration snapshot of this world after the configuration was reloaded, and tells the
+     * {@link WorldConfigSnapshot.Listener}s
+     */
+    public void reloadConfigSnapshot() {
+        worldConfig = Configuration.getWorldConfig(this.fqName);
+        configSnapshot = WorldConfigSnapshot.read(this.fqName);
+        WorldConfigSnapshot.fireReloaded(this, configSnapshot);
+    }
+
     @Override
     public String getName() {
         return this.name;
@@ -345,7 +366,7 @@ public class CanaryWorld implements World {
 
     @Override
     public int getHeight() {
-        return worldConfig.getMaxBuildHeight();
+        return configSnapshot.maxBuildHeight;
     }
 
     @Override
@@ -446,6 +467,20 @@ public class CanaryWorld implements World {
         return isChunkLoaded(x, z) ? getChunkProvider().provideChunk(x, z) : null;
     }
 
+    /**
+     * Takes a snapshot of a loaded chunk that can be read from any thread, must be called on the server thread
+     *
+     * @param x
+     *         the chunk x
+     * @param z
+     *         the chunk z
+     *
+     * @return the snapshot, or null if the chunk is not loaded
+     */
+    public ChunkSnapshot getChunkSnapshot(int x, int z) {
+        return isChunkLoaded(x, z) ? ((CanaryChunk) getChunkProvider().provideChunk(x, z)).getSnapshot() : null;
+    }
+
     @Override
     public List<Chunk> getLoadedChunks() {
         return getChunkProvider().getLoadedChunks();
@@ -0,0 +1,210 @@
+package net.canarymod.api.world;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.canarymod.Canary;
+import net.canarymod.api.ServerConfigSnapshot;
+import net.minecraft.network.Packet;
+import net.minecraft.network.play.server.S21PacketChunkData;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches full chunk data packets per chunk so that players logging into the same area
+ * share one extracted payload instead of each serializing the chunk again on the main thread.
+ * <p/>
+ * Payloads are keyed by chunk position and {@link Chunk#getModificationCount()}.
+ * They are built on a small worker pool and are only published if the chunk did not change while
+ * being read, so a cached payload never holds torn data.
+ * Compression still happens per connection in the network pipeline.
+ * Unless {@code chunk-payload-cache-size} sets a size, the cache holds the view area of every player in the world,
+ * at most {@value #AUTO_SIZE_LIMIT} payloads; only chunks watched by more than one player are prefetched.
+ * Reloading the configuration drops every cached payload, so a changed {@code chunk-payload-cache-size} applies.
+ */
+public class ChunkPayloadCache {
+    private static final int AUTO_SIZE_LIMIT = 256;
+    private static final ExecutorService builders;
+
+    static {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        builders = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(4096),
+                new ThreadFactoryBuilder().setNameFormat("Chunk Payload Builder #%d").setDaemon(true).build());
+        ((ThreadPoolExecutor) builders).allowCoreThreadTimeOut(true);
+        WorldConfigSnapshot.addListener(new WorldConfigSnapshot.Listener() {
+            @Override
+            public void snapshotReloaded(CanaryWorld world, WorldConfigSnapshot snapshot) {
+                ((WorldServer) world.getHandle()).getChunkPayloadCache().clear();
+            }
+        });
+    }
+
+    private final WorldServer world;
+    private final Map<Long, Payload> payloads;
+
+    public ChunkPayloadCache(WorldServer world) {
+        this.world = world;
+        this.payloads = new LinkedHashMap<Long, Payload>(64, 0.75F, true);
+    }
+
+    /**
+     * Gets a ready-made full chunk packet if one is cached for the current state of the chunk.
+     *
+     * @param chunk
+     *         the chunk to get the payload for
+     *
+     * @return the cached packet, or null if none is ready
+     */
+    public Packet get(Chunk chunk) {
+        if (capacity() == 0) {
+            return null;
+        }
+        Long key = key(chunk.a, chunk.b);
+        synchronized (payloads) {
+            Payload payload = payloads.get(key);
+            if (payload == null || payload.packet == null) {
+                return null;
+            }
+            if (payload.modCount != chunk.getModificationCount()) {
+                payloads.remove(key);
+                return null;
+            }
+            return payload.packet;
+        }
+    }
+
+    /**
+     * Schedules building the full chunk packet for the given chunk off the main thread,
+     * unless a payload for its current state is already cached or being built.
+     *
+     * @param chunk
+     *         the chunk to prepare
+     */
+    public void prefetch(final Chunk chunk) {
+        int capacity = capacity();
+
+        if (capacity == 0 || !chunk.i()) {
+            return;
+        }
+        final Long key = key(chunk.a, chunk.b);
+        final int modCount = chunk.getModificationCount();
+        final Payload payload;
+
+        synchronized (payloads) {
+            Payload current = payloads.get(key);
+            if (current != null && current.modCount == modCount) {
+                return;
+            }
+            payload = new Payload(modCount);
+            payloads.put(key, payload);
+            // Players leaving shrink the cache, so more than one entry may be over
+            Iterator<Long> eldest = payloads.keySet().iterator();
+            while (payloads.size() > capacity) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        try {
+            builders.execute(new Runnable() {
+                @Override
+                public void run() {
+                    build(key, chunk, payload);
+                }
+            });
+        }
+        catch (RejectedExecutionException rex) {
+            // Workers are saturated, the main thread will serialize the chunk itself
+            remove(key, payload);
+        }
+    }
+
+    /**
+     * Drops any cached payload for the chunk at the given chunk coordinates
+     *
+     * @param x
+     *         the chunk x coordinate
+     * @param z
+     *         the chunk z coordinate
+     */
+    public void invalidate(int x, int z) {
+        synchronized (payloads) {
+            payloads.remove(key(x, z));
+        }
+    }
+
+    /**
+     * Drops every cached payload
+     */
+    public void clear() {
+        synchronized (payloads) {
+            payloads.clear();
+        }
+    }
+
+    // The configured size, or the view areas of the players in the world up to the limit
+    private int capacity() {
+        int size = ServerConfigSnapshot.get().chunkPayloadCacheSize;
+
+        if (size >= 0) {
+            return size;
+        }
+        int side = 2 * world.t().getPlayerViewRadius() + 1;
+
+        return Math.min(AUTO_SIZE_LIMIT, side * side * world.j.size());
+    }
+
+    private void build(Long key, Chunk chunk, Payload payload) {
+        if (chunk.getModificationCount() != payload.modCount) {
+            remove(key, payload);
+            return;
+        }
+        Packet packet;
+        try {
+            packet = new S21PacketChunkData(chunk, true, '\uffff');
+        }
+        catch (Exception ex) {
+            // Most likely a concurrent section replacement, let the main thread handle it
+            Canary.log.debug("Failed to build chunk payload for " + chunk.a + ", " + chunk.b + " in " + world.getCanaryWorld().getFqName(), ex);
+            remove(key, payload);
+            return;
+        }
+        if (chunk.getModificationCount() != payload.modCount) {
+            // Modified while being read, the payload may be torn
+            remove(key, payload);
+            return;
+        }
+        synchronized (payloads) {
+            if (payloads.get(key) == payload) {
+                payload.packet = packet;
+            }
+        }
+    }
+
+    private void remove(Long key, Payload payload) {
+        synchronized (payloads) {
+            if (payloads.get(key) == payload) {
+                payloads.remove(key);
+            }
+        }
+    }
+
+    private static Long key(int x, int z) {
+        return Long.valueOf((long) x & 4294967295L | ((long) z & 4294967295L) << 32);
+    }
+
+    private static final class Payload {
+        final int modCount;
+        Packet packet;
+
+        Payload(int modCount) {
+            this.modCount = modCount;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package net.canarymod.api.world;
+
+import net.canarymod.api.ServerConfigSnapshot;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.NetworkManager;
+import net.minecraft.world.ChunkCoordIntPair;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The queue of chunks still to be sent to a player.
+ * <p/>
+ * Membership is kept in a hash set, so the containment checks done for every block change broadcast are constant time.
+ * Iteration yields the chunks closest to the player first, favouring the ones in front of them,
+ * and the order is only recomputed when chunks were added or the player's chunk or heading changed.
+ * The order is kept farthest first, so sent chunks are taken off the end of the list and removed chunks never
+ * linger in it. Removal during iteration is supported; any other modification invalidates open iterators.
+ */
+public class ChunkSendQueue extends AbstractList<ChunkCoordIntPair> {
+    private final EntityPlayerMP player;
+    private final Set<ChunkCoordIntPair> members = new HashSet<ChunkCoordIntPair>();
+    private List<ChunkCoordIntPair> ordered = new ArrayList<ChunkCoordIntPair>(); // farthest first
+    private boolean dirty;
+    private int sortedX;
+    private int sortedZ;
+    private float sortedYaw;
+
+    public ChunkSendQueue(EntityPlayerMP player) {
+        this.player = player;
+    }
+
+    @Override
+    public boolean add(ChunkCoordIntPair chunkcoordintpair) {
+        if (members.add(chunkcoordintpair)) {
+            dirty = true;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!members.remove(o)) {
+            return false;
+        }
+        if (!dirty) {
+            ordered.remove(o);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return members.contains(o);
+    }
+
+    @Override
+    public int size() {
+        return members.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        members.clear();
+        ordered.clear();
+        dirty = false;
+    }
+
+    @Override
+    public ChunkCoordIntPair get(int index) {
+        if (index < 0 || index >= members.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + members.size());
+        }
+        sortIfNeeded();
+        return ordered.get(ordered.size() - 1 - index);
+    }
+
+    @Override
+    public Iterator<ChunkCoordIntPair> iterator() {
+        sortIfNeeded();
+        return new Itr();
+    }
+
+    /**
+     * Drops every queued chunk that lies outside the given view area and forces a re-sort
+     *
+     * @param chunkX
+     *         the chunk x coordinate at the center of the view area
+     * @param chunkZ
+     *         the chunk z coordinate at the center of the view area
+     * @param radius
+     *         the view radius in chunks
+     */
+    public void retainWithin(int chunkX, int chunkZ, int radius) {
+        Iterator<ChunkCoordIntPair> iterator = members.iterator();
+        while (iterator.hasNext()) {
+            ChunkCoordIntPair chunkcoordintpair = iterator.next();
+            if (Math.abs(chunkcoordintpair.a - chunkX) > radius || Math.abs(chunkcoordintpair.b - chunkZ) > radius) {
+                iterator.remove();
+            }
+        }
+        dirty = true;
+    }
+
+    /**
+     * Gets how many chunks may be sent to the player this tick.
+     * The budget shrinks as packets pile up on the connection and drops to nothing while the channel is saturated,
+     * so slow connections are not buried under chunk data and fast ones drain their queue quickly.
+     *
+     * @return the number of chunks to send this tick
+     */
+    public int getSendBudget() {
+        NetworkManager networkmanager = player.a.a;
+
+        if (!networkmanager.isWritable()) {
+            return 0;
+        }
+        return Math.max(1, ServerConfigSnapshot.get().chunkSendMaxPerTick - networkmanager.getPendingWrites() / 4);
+    }
+
+    private void sortIfNeeded() {
+        int chunkX = (int) Math.floor(player.s) >> 4;
+        int chunkZ = (int) Math.floor(player.u) >> 4;
+        float yawDelta = Math.abs(((player.y - sortedYaw) % 360.0F + 540.0F) % 360.0F - 180.0F);
+
+        if (!dirty && chunkX == sortedX && chunkZ == sortedZ && yawDelta < 45.0F) {
+            return;
+        }
+        List<ChunkCoordIntPair> sorted = new ArrayList<ChunkCoordIntPair>(members);
+
+        final double px = player.s / 16.0D;
+        final double pz = player.u / 16.0D;
+        final double lx = -Math.sin(Math.toRadians(player.y));
+        final double lz = Math.cos(Math.toRadians(player.y));
+
+        Collections.sort(sorted, new Comparator<ChunkCoordIntPair>() {
+            @Override
+            public int compare(ChunkCoordIntPair c1, ChunkCoordIntPair c2) {
+                return Double.compare(score(c2), score(c1));
+            }
+
+            private double score(ChunkCoordIntPair chunkcoordintpair) {
+                double dx = chunkcoordintpair.a + 0.5D - px;
+                double dz = chunkcoordintpair.b + 0.5D - pz;
+                double distSq = dx * dx + dz * dz;
+
+                if (distSq < 1.0D) {
+                    return distSq;
+                }
+                // Chunks behind the player weigh up to twice their distance, the weight is squared like the distance
+                double facing = (dx * lx + dz * lz) / Math.sqrt(distSq);
+                double weight = 1.5D - 0.5D * facing;
+                return distSq * weight * weight;
+            }
+        });
+        ordered = sorted;
+        sortedX = chunkX;
+        sortedZ = chunkZ;
+        sortedYaw = player.y;
+        dirty = false;
+    }
+
+    private final class Itr implements Iterator<ChunkCoordIntPair> {
+        private final List<ChunkCoordIntPair> snapshot = ordered;
+        private int cursor = snapshot.size() - 1;
+        private int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            return cursor >= 0;
+        }
+
+        @Override
+        public ChunkCoordIntPair next() {
+            if (cursor < 0) {
+                throw new NoSuchElementException();
+            }
+            last = cursor--;
+            return snapshot.get(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            // Only the chunks already iterated over move up
+            ChunkCoordIntPair chunkcoordintpair = snapshot.remove(last);
+
+            members.remove(chunkcoordintpair);
+            if (snapshot != ordered && !dirty) {
+                ordered.remove(chunkcoordintpair);
+            }
+            last = -1;
+        }
+    }
+}
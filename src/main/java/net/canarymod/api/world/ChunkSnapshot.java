@@ -0,0 +1,234 @@
+package net.canarymod.api.world;
+
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+/**
+ * A copy of the blocks, light, heights and biomes of a chunk as they were at one moment.
+ * <p/>
+ * Taking a snapshot copies the raw section arrays of the chunk on the server thread, which is cheap compared to
+ * reading the chunk block by block. The snapshot never changes afterwards, so it may be read from any thread, and
+ * reading it creates no {@link net.canarymod.api.world.blocks.Block} wrappers. Use it to move read-only terrain
+ * analysis off the server thread, and compare {@link #getModificationCount()} with the chunk to tell whether a
+ * snapshot is out of date.
+ */
+public final class ChunkSnapshot {
+    private final int x, z;
+    private final long worldTime;
+    private final int modificationCount;
+    private final boolean hasSky;
+    // Per section of 16 block levels, null where the chunk has no section
+    private final char[][] blocks;
+    private final byte[][] blockLight;
+    private final byte[][] skyLight;
+    private final int[] heightMap;
+    private final byte[] biomes;
+
+    private ChunkSnapshot(Chunk chunk) {
+        this.x = chunk.a;
+        this.z = chunk.b;
+        this.worldTime = chunk.i.K();
+        this.modificationCount = chunk.getModificationCount();
+        this.hasSky = !chunk.i.t.o();
+
+        ExtendedBlockStorage[] sections = chunk.h();
+
+        this.blocks = new char[sections.length][];
+        this.blockLight = new byte[sections.length][];
+        this.skyLight = new byte[sections.length][];
+        for (int i0 = 0; i0 < sections.length; ++i0) {
+            ExtendedBlockStorage section = sections[i0];
+
+            if (section != null) {
+                blocks[i0] = section.g().clone();
+                blockLight[i0] = section.h().a().clone();
+                if (hasSky && section.i() != null) {
+                    skyLight[i0] = section.i().a().clone();
+                }
+            }
+        }
+        this.heightMap = chunk.q().clone();
+        this.biomes = chunk.k().clone();
+    }
+
+    /**
+     * Takes a snapshot of a chunk, must be called on the server thread
+     *
+     * @param chunk
+     *         the chunk
+     *
+     * @return the snapshot
+     */
+    public static ChunkSnapshot capture(Chunk chunk) {
+        // Light checks still waiting in the lighting queue belong to the current state of the chunk
+        chunk.i.getLightingQueue().resolve(chunk.a, chunk.b);
+        return new ChunkSnapshot(chunk);
+    }
+
+    /**
+     * Gets the x coordinate of the chunk
+     *
+     * @return the chunk x
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Gets the z coordinate of the chunk
+     *
+     * @return the chunk z
+     */
+    public int getZ() {
+        return z;
+    }
+
+    /**
+     * Gets the total world time at which the snapshot was taken
+     *
+     * @return the world time
+     */
+    public long getCaptureTime() {
+        return worldTime;
+    }
+
+    /**
+     * Gets the modification count the chunk had when the snapshot was taken
+     *
+     * @return the modification count
+     */
+    public int getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Checks whether the chunk had no section at a range of 16 block levels, which then holds only air
+     *
+     * @param sectionY
+     *         the section, 0 to 15
+     *
+     * @return true if empty
+     */
+    public boolean isSectionEmpty(int sectionY) {
+        return sectionY < 0 || sectionY >= blocks.length || blocks[sectionY] == null;
+    }
+
+    /**
+     * Gets the block id at a position in the chunk
+     *
+     * @param x
+     *         the x within the chunk, 0 to 15
+     * @param y
+     *         the y
+     * @param z
+     *         the z within the chunk, 0 to 15
+     *
+     * @return the block id, 0 for air
+     */
+    public int getBlockTypeAt(int x, int y, int z) {
+        return getBlockStateId(x, y, z) >> 4;
+    }
+
+    /**
+     * Gets the block data at a position in the chunk
+     *
+     * @param x
+     *         the x within the chunk, 0 to 15
+     * @param y
+     *         the y
+     * @param z
+     *         the z within the chunk, 0 to 15
+     *
+     * @return the block data
+     */
+    public int getBlockDataAt(int x, int y, int z) {
+        return getBlockStateId(x, y, z) & 15;
+    }
+
+    private int getBlockStateId(int x, int y, int z) {
+        if (isSectionEmpty(y >> 4)) {
+            return 0;
+        }
+        return blocks[y >> 4][index(x, y, z)];
+    }
+
+    /**
+     * Gets the light given off by blocks at a position in the chunk
+     *
+     * @param x
+     *         the x within the chunk, 0 to 15
+     * @param y
+     *         the y
+     * @param z
+     *         the z within the chunk, 0 to 15
+     *
+     * @return the block light, 0 to 15
+     */
+    public int getBlockLightAt(int x, int y, int z) {
+        if (isSectionEmpty(y >> 4)) {
+            return 0;
+        }
+        return nibble(blockLight[y >> 4], index(x, y, z));
+    }
+
+    /**
+     * Gets the light coming from the sky at a position in the chunk
+     *
+     * @param x
+     *         the x within the chunk, 0 to 15
+     * @param y
+     *         the y
+     * @param z
+     *         the z within the chunk, 0 to 15
+     *
+     * @return the sky light, 0 to 15
+     */
+    public int getSkyLightAt(int x, int y, int z) {
+        if (!hasSky) {
+            return 0;
+        }
+        if (isSectionEmpty(y >> 4) || skyLight[y >> 4] == null) {
+            // Like the chunk does, positions without a section are lit fully if the sky can be seen
+            return y >= getHeightAt(x, z) ? 15 : 0;
+        }
+        return nibble(skyLight[y >> 4], index(x, y, z));
+    }
+
+    /**
+     * Gets the lowest level at which the sky can be seen in a column of the chunk
+     *
+     * @param x
+     *         the x within the chunk, 0 to 15
+     * @param z
+     *         the z within the chunk, 0 to 15
+     *
+     * @return the height
+     */
+    public int getHeightAt(int x, int z) {
+        return heightMap[(z & 15) << 4 | x & 15];
+    }
+
+    /**
+     * Gets the biome id of a column of the chunk
+     *
+     * @param x
+     *         the x within the chunk, 0 to 15
+     * @param z
+     *         the z within the chunk, 0 to 15
+     *
+     * @return the biome id, 255 if the biome was not generated yet
+     */
+    public int getBiomeIdAt(int x, int z) {
+        return biomes[(z & 15) << 4 | x & 15] & 255;
+    }
+
+    private static int index(int x, int y, int z) {
+        return (y & 15) << 8 | (z & 15) << 4 | x & 15;
+    }
+
+    private static int nibble(byte[] data, int index) {
+        int value = data[index >> 1];
+
+        return (index & 1) == 0 ? value & 15 : value >> 4 & 15;
+    }
+}
@@ -0,0 +1,159 @@
+package net.canarymod.api.world;
+
+import net.canarymod.api.ServerConfigSnapshot;
+import net.minecraft.util.BlockPos;
+import net.minecraft.world.World;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Queues the light checks caused by block changes in a world and runs them in batches.
+ * <p/>
+ * While lighting is deferred, a block change only marks its position in its chunk section, so a position that changes
+ * several times before the batch runs is checked once. Sections are worked off in the order they were first queued,
+ * at most {@code lighting-batch-size} positions per tick at the lighting step of the world tick. All queued checks of
+ * a chunk and its neighbours run before the chunk is sent to a player or saved. With {@code lighting-deferred} every
+ * block change is deferred, otherwise only those made between {@link #beginBulk()} and {@link #endBulk()}, such as an
+ * explosion's.
+ */
+public class LightingQueue {
+    private final World world;
+    private final Map<Long, Section> sections = new LinkedHashMap<Long, Section>();
+    private int bulkDepth;
+    private int pending;
+
+    public LightingQueue(World world) {
+        this.world = world;
+    }
+
+    /**
+     * Starts a bulk edit, light checks of the block changes that follow are deferred until {@link #endBulk()}
+     * was called as often
+     */
+    public void beginBulk() {
+        ++bulkDepth;
+    }
+
+    /**
+     * Ends a bulk edit started with {@link #beginBulk()}, the checks queued meanwhile run with the next batch
+     */
+    public void endBulk() {
+        if (bulkDepth > 0) {
+            --bulkDepth;
+        }
+    }
+
+    /**
+     * Queues the light check for a changed block if lighting is deferred right now
+     *
+     * @param blockpos
+     *         the changed block
+     *
+     * @return true if the check was queued, false if the caller should check the light itself
+     */
+    public boolean queue(BlockPos blockpos) {
+        if (bulkDepth == 0 && !ServerConfigSnapshot.get().lightingDeferred) {
+            return false;
+        }
+        int cx = blockpos.n() >> 4;
+        int sy = blockpos.o() >> 4;
+        int cz = blockpos.p() >> 4;
+        Long key = key(cx, sy, cz);
+        Section section = sections.get(key);
+
+        if (section == null) {
+            section = new Section(cx, sy, cz);
+            sections.put(key, section);
+        }
+        int index = (blockpos.o() & 15) << 8 | (blockpos.p() & 15) << 4 | blockpos.n() & 15;
+
+        if (!section.positions.get(index)) {
+            section.positions.set(index);
+            ++pending;
+        }
+        return true;
+    }
+
+    /**
+     * Gets how many light checks are waiting
+     *
+     * @return the number of queued positions
+     */
+    public int getPendingCount() {
+        return pending;
+    }
+
+    /**
+     * Runs the next batch of queued light checks, called once per world tick
+     */
+    public void process() {
+        int budget = ServerConfigSnapshot.get().lightingBatchSize;
+        Iterator<Section> iterator = sections.values().iterator();
+
+        while (budget > 0 && iterator.hasNext()) {
+            Section section = iterator.next();
+
+            budget -= check(section, budget);
+            if (section.positions.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Runs every queued light check that can reach into a chunk, so its light is final before it is sent or saved.
+     * A check spreads light up to 15 blocks, so the queued checks of the neighbouring chunks run as well.
+     *
+     * @param x
+     *         the chunk x
+     * @param z
+     *         the chunk z
+     */
+    public void resolve(int x, int z) {
+        if (pending == 0) {
+            return;
+        }
+        for (int cx = x - 1; cx <= x + 1; ++cx) {
+            for (int cz = z - 1; cz <= z + 1; ++cz) {
+                for (int sy = 0; sy < 16; ++sy) {
+                    Section section = sections.remove(key(cx, sy, cz));
+
+                    if (section != null) {
+                        check(section, Integer.MAX_VALUE);
+                    }
+                }
+            }
+        }
+    }
+
+    private int check(Section section, int limit) {
+        int done = 0;
+
+        for (int i0 = section.positions.nextSetBit(0); i0 >= 0 && done < limit; i0 = section.positions.nextSetBit(i0 + 1)) {
+            section.positions.clear(i0);
+            --pending;
+            ++done;
+            // Unloaded areas are refused by the check itself, like an immediate check would be
+            world.x(new BlockPos((section.x << 4) + (i0 & 15), (section.y << 4) + (i0 >> 8), (section.z << 4) + (i0 >> 4 & 15)));
+        }
+        return done;
+    }
+
+    private static Long key(int x, int y, int z) {
+        return Long.valueOf((long) x & 67108863L | ((long) z & 67108863L) << 26 | (long) (y & 15) << 52);
+    }
+
+    private static final class Section {
+        final int x, y, z;
+        final BitSet positions = new BitSet(4096);
+
+        Section(int x, int y, int z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+    }
+}
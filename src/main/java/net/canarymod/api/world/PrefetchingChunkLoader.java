@@ -0,0 +1,76 @@
+package net.canarymod.api.world;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.AnvilChunkLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An Anvil chunk loader that takes chunk data read and decoded ahead by other threads.
+ * <p/>
+ * While a read-ahead is open, a {@link SpawnAreaPreparer} hands in the decoded NBT of chunks on disk, and loading
+ * such a chunk on the main thread only builds it from that NBT. Every chunk is taken from the read-ahead at most
+ * once: the first load claims it, and data handed in after that is ignored, so data that was read before the chunk
+ * was loaded and saved again is never used.
+ */
+public class PrefetchingChunkLoader extends AnvilChunkLoader {
+    private static final Object CLAIMED = new Object();
+
+    private final ConcurrentHashMap<Long, Object> prefetched = new ConcurrentHashMap<Long, Object>();
+    private volatile boolean open;
+
+    public PrefetchingChunkLoader(File directory) {
+        super(directory);
+    }
+
+    /**
+     * Starts taking decoded chunks from a read-ahead
+     */
+    public void open() {
+        open = true;
+    }
+
+    /**
+     * Stops taking decoded chunks and lets go of those not loaded
+     */
+    public void close() {
+        open = false;
+        prefetched.clear();
+    }
+
+    /**
+     * Hands in the decoded data of a chunk, called by read-ahead threads
+     *
+     * @param x
+     *         the chunk x
+     * @param z
+     *         the chunk z
+     * @param nbttagcompound
+     *         the chunk's data as stored on disk
+     */
+    public void offer(int x, int z, NBTTagCompound nbttagcompound) {
+        if (open) {
+            prefetched.putIfAbsent(key(x, z), nbttagcompound);
+        }
+    }
+
+    @Override
+    public Chunk a(World world, int x, int z) throws IOException {
+        if (open) {
+            Object data = prefetched.put(key(x, z), CLAIMED);
+
+            if (data instanceof NBTTagCompound) {
+                return this.a(world, x, z, (NBTTagCompound) data);
+            }
+        }
+        return super.a(world, x, z);
+    }
+
+    private static Long key(int x, int z) {
+        return Long.valueOf((long) x & 4294967295L | ((long) z & 4294967295L) << 32);
+    }
+}
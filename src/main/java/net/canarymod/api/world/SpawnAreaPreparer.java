@@ -0,0 +1,191 @@
+package net.canarymod.api.world;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.canarymod.Canary;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.util.BlockPos;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.storage.RegionFile;
+import net.minecraft.world.chunk.storage.RegionFileCache;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads and decodes the spawn area of a world from its region files ahead of the main thread.
+ * <p/>
+ * Each region file the spawn area touches is read by its own task, so the disk reads and NBT decoding of several
+ * worlds and region files overlap while the main thread loads and generates chunks in the usual order. The decoded
+ * chunk data is handed to the world's {@link PrefetchingChunkLoader}; the chunks themselves, with their entities and
+ * tile entities, are still built on the main thread, which keeps the state of the first tick the same as without
+ * read-ahead.
+ */
+public class SpawnAreaPreparer {
+    /**
+     * The spawn area radius in blocks, as used by {@code MinecraftServer.k(WorldServer)}
+     */
+    public static final int RADIUS = 192;
+
+    private static final ExecutorService readers;
+
+    static {
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        readers = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("Spawn Area Reader #%d").setDaemon(true).build());
+        ((ThreadPoolExecutor) readers).allowCoreThreadTimeOut(true);
+    }
+
+    private final AtomicInteger regionsRead = new AtomicInteger();
+    private final AtomicInteger chunksRead = new AtomicInteger();
+    private int regions;
+    private PrefetchingChunkLoader loader;
+
+    private SpawnAreaPreparer() {
+    }
+
+    /**
+     * Checks whether the spawn area of the given world is to be loaded and kept in memory
+     *
+     * @param worldserver
+     *         the world to check
+     *
+     * @return true if the spawn area should be prepared
+     */
+    public static boolean keepsSpawnLoaded(WorldServer worldserver) {
+        return worldserver.getCanaryWorld().getConfigSnapshot().keepSpawnLoaded;
+    }
+
+    /**
+     * Starts reading the region data of the given world's spawn area in the background
+     *
+     * @param worldserver
+     *         the world to read ahead for
+     *
+     * @return the read-ahead, which can be queried for progress
+     */
+    public static SpawnAreaPreparer prefetch(WorldServer worldserver) {
+        SpawnAreaPreparer preparer = new SpawnAreaPreparer();
+
+        if (!keepsSpawnLoaded(worldserver) || !(worldserver.b.f instanceof PrefetchingChunkLoader)) {
+            return preparer;
+        }
+        preparer.loader = (PrefetchingChunkLoader) worldserver.b.f;
+        preparer.loader.open();
+        final File directory = worldserver.O().b();
+        BlockPos blockpos = worldserver.M();
+        // Group the chunks by region file, in the order the main thread is going to load them
+        Map<Long, List<int[]>> byRegion = new LinkedHashMap<Long, List<int[]>>();
+
+        for (int i0 = -RADIUS; i0 <= RADIUS; i0 += 16) {
+            for (int i1 = -RADIUS; i1 <= RADIUS; i1 += 16) {
+                int x = blockpos.n() + i0 >> 4;
+                int z = blockpos.p() + i1 >> 4;
+                Long key = Long.valueOf((long) (x >> 5) & 4294967295L | ((long) (z >> 5) & 4294967295L) << 32);
+                List<int[]> chunks = byRegion.get(key);
+
+                if (chunks == null) {
+                    chunks = new ArrayList<int[]>();
+                    byRegion.put(key, chunks);
+                }
+                chunks.add(new int[]{ x, z });
+            }
+        }
+        preparer.regions = byRegion.size();
+        for (final List<int[]> chunks : byRegion.values()) {
+            final SpawnAreaPreparer self = preparer;
+            try {
+                readers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        self.read(directory, chunks);
+                    }
+                });
+            }
+            catch (RejectedExecutionException rex) {
+                // The main thread reads the region itself
+                preparer.regionsRead.incrementAndGet();
+            }
+        }
+        return preparer;
+    }
+
+    private void read(File directory, List<int[]> chunks) {
+        try {
+            RegionFile regionfile = RegionFileCache.a(directory, chunks.get(0)[0], chunks.get(0)[1]);
+
+            for (int[] chunk : chunks) {
+                if (!regionfile.c(chunk[0] & 31, chunk[1] & 31)) {
+                    continue; // Not generated yet
+                }
+                DataInputStream datainputstream = regionfile.a(chunk[0] & 31, chunk[1] & 31);
+
+                if (datainputstream != null) {
+                    try {
+                        loader.offer(chunk[0], chunk[1], CompressedStreamTools.a(datainputstream));
+                    }
+                    finally {
+                        datainputstream.close();
+                    }
+                    chunksRead.incrementAndGet();
+                }
+            }
+        }
+        catch (IOException ioex) {
+            Canary.log.debug("Failed to read ahead the spawn area in " + directory, ioex);
+        }
+        catch (RuntimeException rex) {
+            // The region file cache may have been flushed under us, the main thread will read normally
+            Canary.log.debug("Failed to read ahead the spawn area in " + directory, rex);
+        }
+        finally {
+            regionsRead.incrementAndGet();
+        }
+    }
+
+    /**
+     * Ends the read-ahead once the spawn area is loaded, chunks loaded later are read by the main thread again
+     */
+    public void finish() {
+        if (loader != null) {
+            loader.close();
+        }
+    }
+
+    /**
+     * Gets how many chunks were found on disk and decoded ahead so far
+     *
+     * @return the number of chunks read
+     */
+    public int getChunksRead() {
+        return chunksRead.get();
+    }
+
+    /**
+     * Gets how many of the spawn area's region files have been read
+     *
+     * @return the number of region files done
+     */
+    public int getRegionsRead() {
+        return regionsRead.get();
+    }
+
+    /**
+     * Gets how many region files the spawn area touches
+     *
+     * @return the number of region files
+     */
+    public int getRegions() {
+        return regions;
+    }
+}
@@ -0,0 +1,160 @@
+package net.canarymod.api.world;
+
+import net.minecraft.command.IEntitySelector;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.tileentity.MobSpawnerBaseLogic;
+import net.minecraft.util.BlockPos;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tells mob spawners of a world whether a player is within their activation range.
+ * <p/>
+ * Spawners register themselves by position the first time they ask. Once per tick the index looks around each player
+ * and wakes the spawners whose range the player is in, so the cost grows with the number of players and not with
+ * the number of spawners times players. Spawners that stop asking, because they were broken or unloaded, are dropped.
+ */
+public class SpawnerActivationIndex {
+    private static final int staleTicks = 20;
+
+    private final World world;
+    private final Map<MobSpawnerBaseLogic, Entry> entries = new IdentityHashMap<MobSpawnerBaseLogic, Entry>();
+    private final Map<Long, List<Entry>> byChunk = new HashMap<Long, List<Entry>>();
+    private long refreshedTick = -1L;
+
+    public SpawnerActivationIndex(World world) {
+        this.world = world;
+    }
+
+    /**
+     * Checks whether a player is within the activation range of a spawner that does not move
+     *
+     * @param logic
+     *         the spawner
+     *
+     * @return true if the spawner is active this tick
+     */
+    public boolean isActive(MobSpawnerBaseLogic logic) {
+        BlockPos blockpos = logic.b();
+
+        if (logic.l < 0) {
+            return world.b((double) blockpos.n() + 0.5D, (double) blockpos.o() + 0.5D, (double) blockpos.p() + 0.5D, (double) logic.l);
+        }
+        long tick = world.K();
+        Entry entry = entries.get(logic);
+
+        if (entry != null && !entry.pos.equals(blockpos)) {
+            remove(entry);
+            entry = null;
+        }
+        if (entry == null) {
+            entry = new Entry(logic, blockpos);
+            entries.put(logic, entry);
+            key(blockpos.n() >> 4, blockpos.p() >> 4, true).add(entry);
+            if (refreshedTick == tick) {
+                // Registered after this tick's sweep, check the usual way
+                entry.lastSeen = tick;
+                entry.activeTick = world.b((double) blockpos.n() + 0.5D, (double) blockpos.o() + 0.5D, (double) blockpos.p() + 0.5D, (double) logic.l) ? tick : -1L;
+            }
+        }
+        entry.lastSeen = tick;
+        if (refreshedTick != tick) {
+            refresh(tick);
+        }
+        return entry.activeTick == tick;
+    }
+
+    private void refresh(long tick) {
+        refreshedTick = tick;
+        int maxRange = 0;
+        Iterator<Entry> iterator = entries.values().iterator();
+
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+
+            if (tick - entry.lastSeen > staleTicks) {
+                iterator.remove();
+                List<Entry> bucket = key(entry.pos.n() >> 4, entry.pos.p() >> 4, false);
+                if (bucket != null) {
+                    bucket.remove(entry);
+                }
+                continue;
+            }
+            entry.range = entry.logic.l;
+            maxRange = Math.max(maxRange, entry.range);
+        }
+        if (entries.isEmpty()) {
+            byChunk.clear();
+            return;
+        }
+        int reach = (maxRange >> 4) + 1;
+
+        for (int i0 = 0; i0 < world.j.size(); ++i0) {
+            EntityPlayer entityplayer = (EntityPlayer) world.j.get(i0);
+
+            if (!IEntitySelector.d.apply(entityplayer)) {
+                continue;
+            }
+            int cx = (int) Math.floor(entityplayer.s) >> 4;
+            int cz = (int) Math.floor(entityplayer.u) >> 4;
+
+            for (int x = cx - reach; x <= cx + reach; ++x) {
+                for (int z = cz - reach; z <= cz + reach; ++z) {
+                    List<Entry> bucket = key(x, z, false);
+
+                    if (bucket == null) {
+                        continue;
+                    }
+                    for (Entry entry : bucket) {
+                        if (entry.activeTick != tick && entry.range >= 0
+                                && entityplayer.e((double) entry.pos.n() + 0.5D, (double) entry.pos.o() + 0.5D, (double) entry.pos.p() + 0.5D) < (double) entry.range * (double) entry.range) {
+                            entry.activeTick = tick;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.logic);
+        List<Entry> bucket = key(entry.pos.n() >> 4, entry.pos.p() >> 4, false);
+        if (bucket != null) {
+            bucket.remove(entry);
+        }
+    }
+
+    private List<Entry> key(int x, int z, boolean create) {
+        Long key = Long.valueOf((long) x & 4294967295L | ((long) z & 4294967295L) << 32);
+        List<Entry> bucket = byChunk.get(key);
+
+        if (bucket == null && create) {
+            bucket = new ArrayList<Entry>(2);
+            byChunk.put(key, bucket);
+        }
+        else if (bucket != null && bucket.isEmpty() && !create) {
+            byChunk.remove(key);
+            return null;
+        }
+        return bucket;
+    }
+
+    private static final class Entry {
+        final MobSpawnerBaseLogic logic;
+        final BlockPos pos;
+        int range;
+        long lastSeen;
+        long activeTick = -1L;
+
+        Entry(MobSpawnerBaseLogic logic, BlockPos pos) {
+            this.logic = logic;
+            this.pos = pos;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package net.canarymod.api.world;
+
+import com.google.common.collect.ImmutableSet;
+import net.canarymod.api.GameMode;
+import net.canarymod.config.Configuration;
+import net.canarymod.config.ServerConfiguration;
+import net.canarymod.config.WorldConfiguration;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The configuration values a world reads while it ticks, read from the configuration files once.
+ * <p/>
+ * Every {@link CanaryWorld} holds one snapshot, built from its world configuration and the server configuration when
+ * the world is loaded and replaced as a whole when the configuration is reloaded. Code running every tick reads the
+ * final fields of {@link CanaryWorld#getConfigSnapshot()} instead of looking the configuration up by world name.
+ * Caches built from configuration values register a {@link Listener} to learn of a reload.
+ */
+public final class WorldConfigSnapshot {
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+    /**
+     * Told when the configuration snapshot of a world was replaced
+     */
+    public interface Listener {
+
+        /**
+         * Called on the thread that reloaded the configuration, after the new snapshot is in place
+         *
+         * @param world
+         *         the world
+         * @param snapshot
+         *         the new snapshot
+         */
+        void snapshotReloaded(CanaryWorld world, WorldConfigSnapshot snapshot);
+    }
+
+    public final boolean healthEnabled;
+    public final boolean experienceEnabled;
+    public final boolean pvpEnabled;
+    public final boolean flightAllowed;
+    public final boolean netherAllowed;
+    public final boolean warpAutoLoad;
+    public final boolean forceDefaultGamemode;
+    public final boolean forceDefaultGamemodeDimensional;
+    public final GameMode gameMode;
+    public final int maxBuildHeight;
+    /**
+     * Whether the spawn area is loaded at start up and kept loaded, {@code keep-spawn-loaded}
+     */
+    public final boolean keepSpawnLoaded;
+
+    public final boolean spawnAnimals;
+    public final boolean spawnMonsters;
+    public final boolean spawnVillagers;
+    public final boolean spawnGolems;
+    public final ImmutableSet<String> spawnableAnimals;
+    public final ImmutableSet<String> spawnableWaterAnimals;
+    public final ImmutableSet<String> spawnableMobs;
+    public final ImmutableSet<String> spawnableGolems;
+
+    public final int flightDetectTicks;
+    public final boolean flightKickEnabled;
+    public final boolean deathMessageEnabled;
+    /**
+     * The spam protection level in lower case
+     */
+    public final String spamProtectionLevel;
+
+    WorldConfigSnapshot(WorldConfiguration world, ServerConfiguration server) {
+        healthEnabled = world.isHealthEnabled();
+        experienceEnabled = world.isExperienceEnabled();
+        pvpEnabled = world.isPvpEnabled();
+        flightAllowed = world.isFlightAllowed();
+        netherAllowed = world.isNetherAllowed();
+        warpAutoLoad = world.allowWarpAutoLoad();
+        forceDefaultGamemode = world.forceDefaultGamemode();
+        forceDefaultGamemodeDimensional = world.forceDefaultGamemodeDimensional();
+        gameMode = world.getGameMode();
+        maxBuildHeight = world.getMaxBuildHeight();
+        // No typed getter in WorldConfiguration, read the key once here
+        keepSpawnLoaded = world.getFile().getBoolean("keep-spawn-loaded", true);
+
+        spawnAnimals = world.canSpawnAnimals();
+        spawnMonsters = world.canSpawnMonsters();
+        spawnVillagers = world.canSpawnVillagers();
+        spawnGolems = world.canSpawnGolems();
+        spawnableAnimals = ImmutableSet.copyOf(world.getSpawnableAnimals());
+        spawnableWaterAnimals = ImmutableSet.copyOf(world.getSpawnableWaterAnimals());
+        spawnableMobs = ImmutableSet.copyOf(world.getSpawnableMobs());
+        spawnableGolems = ImmutableSet.copyOf(world.getSpawnableGolems());
+
+        flightDetectTicks = server.getFlightDetectTicks();
+        flightKickEnabled = server.isFlightKickEnabled();
+        deathMessageEnabled = server.isDeathMessageEnabled();
+        spamProtectionLevel = server.getSpamProtectionLevel().toLowerCase();
+    }
+
+    /**
+     * Reads a snapshot of the current configuration of a world
+     *
+     * @param fqName
+     *         the fully qualified world name
+     *
+     * @return the snapshot
+     */
+    public static WorldConfigSnapshot read(String fqName) {
+        return new WorldConfigSnapshot(Configuration.getWorldConfig(fqName), Configuration.getServerConfig());
+    }
+
+    /**
+     * Adds a listener told of every snapshot reload
+     *
+     * @param listener
+     *         the listener
+     */
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addListener(Listener)}
+     *
+     * @param listener
+     *         the listener
+     */
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    static void fireReloaded(CanaryWorld world, WorldConfigSnapshot snapshot) {
+        for (Listener listener : listeners) {
+            listener.snapshotReloaded(world, snapshot);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package net.canarymod.api.world.blocks;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The search flowing liquids use to find the way to the nearest drop, with its results remembered.
+ * <p/>
+ * The search walks the four horizontal sides up to a depth limit and yields the shortest way to a cell a liquid can
+ * fall down from. A shortest distance does not depend on how deep the search already is, only on whether it fits
+ * under the limit, so results are kept per cell and incoming side and shared between every search that reaches the
+ * same cell from the same side, whatever its depth.
+ * <p/>
+ * Results are only valid as long as the cells the search looked at are unchanged; callers drop the instance when
+ * {@link #hasRead(Object)} tells a changed cell was one of them.
+ *
+ * @param <N>
+ *         the type identifying a cell, usually a block position
+ */
+public final class LiquidSpreadSearch<N> {
+    /**
+     * Returned when no drop is in reach
+     */
+    public static final int NONE = 1000;
+
+    /**
+     * The terrain as seen by the search
+     *
+     * @param <N>
+     *         the type identifying a cell
+     */
+    public interface Terrain<N> {
+
+        /**
+         * Gets the cell next to another one
+         *
+         * @param node
+         *         the cell
+         * @param side
+         *         0 to 3, where {@code (side + 2) & 3} is the opposite side
+         *
+         * @return the neighbouring cell
+         */
+        N neighbour(N node, int side);
+
+        /**
+         * Checks whether the liquid can flow into a cell
+         *
+         * @param node
+         *         the cell
+         *
+         * @return true if the liquid can spread into it
+         */
+        boolean isOpen(N node);
+
+        /**
+         * Checks whether the liquid could fall down from an open cell
+         *
+         * @param node
+         *         the open cell
+         *
+         * @return true if the cell below is open
+         */
+        boolean isDrop(N node);
+    }
+
+    private final Terrain<N> terrain;
+    private final Map<N, int[]> found = new HashMap<N, int[]>();
+    private final Set<N> read = new HashSet<N>();
+
+    public LiquidSpreadSearch(Terrain<N> terrain) {
+        this.terrain = terrain;
+    }
+
+    /**
+     * Finds the way to the nearest drop from a cell
+     *
+     * @param node
+     *         the cell to search from
+     * @param depth
+     *         how deep the search already is, it stops looking past a depth of 4
+     * @param from
+     *         the side the search came from, which is not searched, or -1
+     *
+     * @return the depth at which a neighbour with a drop was found, or {@link #NONE}
+     */
+    public int search(N node, int depth, int from) {
+        int steps = this.steps(node, from, 5 - depth);
+
+        return steps == 0 ? NONE : depth + steps - 1;
+    }
+
+    /**
+     * Checks whether any search so far looked at a cell
+     *
+     * @param node
+     *         the cell
+     *
+     * @return true if a change of the cell may change the results
+     */
+    public boolean hasRead(N node) {
+        return read.contains(node);
+    }
+
+    // Gets the length of the shortest walk to a drop of at most limit steps, or 0
+    private int steps(N node, int from, int limit) {
+        int[] known = found.get(node);
+        int slot = (from + 1) * 2;
+
+        if (known == null) {
+            known = new int[10]; // per incoming side (and none): the shortest walk found, and the limit searched to
+            found.put(node, known);
+        }
+        if (known[slot] != 0) {
+            return known[slot] <= limit ? known[slot] : 0;
+        }
+        if (known[slot + 1] >= limit) {
+            return 0;
+        }
+
+        int best = 0;
+        for (int side = 0; side < 4 && best != 1; side++) {
+            if (side == from) {
+                continue;
+            }
+            N next = terrain.neighbour(node, side);
+
+            read.add(next);
+            if (!terrain.isOpen(next)) {
+                continue;
+            }
+            if (terrain.isDrop(next)) {
+                best = 1;
+            }
+            else if (limit > 1) {
+                int further = this.steps(next, (side + 2) & 3, limit - 1);
+
+                if (further != 0 && (best == 0 || further + 1 < best)) {
+                    best = further + 1;
+                }
+            }
+        }
+        if (best != 0) {
+            known[slot] = best;
+        }
+        else {
+            known[slot + 1] = limit;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,291 @@
+package net.canarymod.api.world.blocks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes the power levels of a redstone wire network in one pass.
+ * <p/>
+ * A wire carries the highest of the power it receives from non-wire sources and the power of the wires feeding it
+ * minus one. Wire updates used to walk down to that state one level and one neighbour notification at a time;
+ * here the wires around a change are gathered breadth first and raised from their source power to the least
+ * stable state, which is the state the stepwise updates settle in.
+ * <p/>
+ * Power drops by one per wire, so a change cannot affect wires more than {@code reach} wires away.
+ * Wires just outside that distance keep their current power and act as fixed inputs.
+ * <p/>
+ * A {@link Veto} may refuse the change of single wires. A refused wire keeps its current power and the network is
+ * solved again around it, so power does not pass a refused wire, as it did not when a stepwise update was refused.
+ *
+ * @param <N>
+ *         the type identifying a wire, usually a block position
+ */
+public final class RedstonePowerSolver<N> {
+
+    /**
+     * The wires of a world as seen by the solver
+     *
+     * @param <N>
+     *         the type identifying a wire
+     */
+    public interface Network<N> {
+
+        /**
+         * Checks whether there is a wire at the given position
+         *
+         * @param node
+         *         the position
+         *
+         * @return true if it is a wire
+         */
+        boolean isWire(N node);
+
+        /**
+         * Gets every wire that may exchange power with the given position, in either direction
+         *
+         * @param node
+         *         the position
+         *
+         * @return the wires linked to the position
+         */
+        Collection<N> getLinked(N node);
+
+        /**
+         * Gets the wires the given wire takes power from
+         *
+         * @param wire
+         *         the wire
+         *
+         * @return the feeding wires
+         */
+        Collection<N> getInputs(N wire);
+
+        /**
+         * Gets the power a wire receives from anything but other wires
+         *
+         * @param wire
+         *         the wire
+         *
+         * @return the power, 0 to 15
+         */
+        int getExternalPower(N wire);
+
+        /**
+         * Gets the power a wire currently carries
+         *
+         * @param wire
+         *         the wire
+         *
+         * @return the power, 0 to 15
+         */
+        int getPower(N wire);
+    }
+
+    /**
+     * Decides whether a wire may take its solved power
+     *
+     * @param <N>
+     *         the type identifying a wire
+     */
+    public interface Veto<N> {
+
+        /**
+         * Checks whether a wire may change its power
+         *
+         * @param wire
+         *         the wire
+         * @param from
+         *         the power it carries
+         * @param to
+         *         the power it would carry
+         *
+         * @return true to allow the change, false to keep the wire at its current power
+         */
+        boolean allow(N wire, int from, int to);
+    }
+
+    private final Map<N, Integer> power;
+    private final Set<N> region;
+
+    private RedstonePowerSolver(Map<N, Integer> power, Set<N> region) {
+        this.power = power;
+        this.region = region;
+    }
+
+    /**
+     * Solves the wires around the given positions
+     *
+     * @param network
+     *         the network to solve
+     * @param origins
+     *         the changed positions, which need not be wires anymore
+     * @param reach
+     *         how far a change can carry, 15 for redstone
+     * @param <N>
+     *         the type identifying a wire
+     *
+     * @return the solution
+     */
+    public static <N> RedstonePowerSolver<N> solve(Network<N> network, Collection<N> origins, int reach) {
+        return solve(network, origins, reach, Collections.<N, Integer>emptyMap());
+    }
+
+    /**
+     * Solves the wires around the given positions, asking a veto for every wire whose power changes.
+     * Every wire in the returned solution was allowed its power; the veto is asked again about a wire only when a
+     * refusal elsewhere changes the power the wire would get.
+     *
+     * @param network
+     *         the network to solve
+     * @param origins
+     *         the changed positions, which need not be wires anymore
+     * @param reach
+     *         how far a change can carry, 15 for redstone
+     * @param veto
+     *         the veto
+     * @param <N>
+     *         the type identifying a wire
+     *
+     * @return the solution
+     */
+    public static <N> RedstonePowerSolver<N> solve(Network<N> network, Collection<N> origins, int reach, Veto<N> veto) {
+        Map<N, Integer> fixed = new HashMap<N, Integer>();
+        Map<N, Integer> allowed = new HashMap<N, Integer>();
+
+        while (true) {
+            RedstonePowerSolver<N> solver = solve(network, origins, reach, fixed);
+            boolean refused = false;
+
+            for (Map.Entry<N, Integer> entry : solver.power.entrySet()) {
+                int from = network.getPower(entry.getKey());
+                int to = entry.getValue();
+
+                if (from == to || Integer.valueOf(to).equals(allowed.get(entry.getKey()))) {
+                    continue;
+                }
+                if (veto.allow(entry.getKey(), from, to)) {
+                    allowed.put(entry.getKey(), to);
+                }
+                else {
+                    fixed.put(entry.getKey(), from);
+                    refused = true;
+                }
+            }
+            if (!refused) {
+                return solver;
+            }
+        }
+    }
+
+    private static <N> RedstonePowerSolver<N> solve(Network<N> network, Collection<N> origins, int reach, Map<N, Integer> fixed) {
+        LinkedHashMap<N, Integer> depth = new LinkedHashMap<N, Integer>();
+        ArrayDeque<N> queue = new ArrayDeque<N>();
+
+        for (N origin : origins) {
+            if (network.isWire(origin)) {
+                discover(depth, queue, origin, 0);
+            }
+            else {
+                for (N linked : network.getLinked(origin)) {
+                    discover(depth, queue, linked, 1);
+                }
+            }
+        }
+        while (!queue.isEmpty()) {
+            N node = queue.poll();
+            int d = depth.get(node);
+
+            if (d > reach || fixed.containsKey(node)) {
+                continue; // Boundary or refused wire, its power cannot change
+            }
+            for (N linked : network.getLinked(node)) {
+                discover(depth, queue, linked, d + 1);
+            }
+        }
+
+        Map<N, Integer> level = new HashMap<N, Integer>(depth.size() * 2);
+        List<N> inner = new ArrayList<N>(depth.size());
+
+        for (Map.Entry<N, Integer> entry : depth.entrySet()) {
+            if (fixed.containsKey(entry.getKey())) {
+                level.put(entry.getKey(), fixed.get(entry.getKey()));
+            }
+            else if (entry.getValue() <= reach) {
+                level.put(entry.getKey(), network.getExternalPower(entry.getKey()));
+                inner.add(entry.getKey());
+            }
+            else {
+                level.put(entry.getKey(), network.getPower(entry.getKey()));
+            }
+        }
+
+        // Levels only ever rise from the source power, so this settles on the least stable state
+        ArrayDeque<N> work = new ArrayDeque<N>(inner);
+        Set<N> queued = new HashSet<N>(inner);
+
+        while (!work.isEmpty()) {
+            N wire = work.poll();
+            queued.remove(wire);
+            int current = level.get(wire);
+            int next = current;
+
+            for (N input : network.getInputs(wire)) {
+                Integer inputLevel = level.get(input);
+                int received = (inputLevel != null ? inputLevel : network.getPower(input)) - 1;
+
+                if (received > next) {
+                    next = received;
+                }
+            }
+            if (next > current) {
+                level.put(wire, next);
+                for (N linked : network.getLinked(wire)) {
+                    Integer d = depth.get(linked);
+
+                    if (d != null && d <= reach && !fixed.containsKey(linked) && queued.add(linked)) {
+                        work.add(linked);
+                    }
+                }
+            }
+        }
+
+        Map<N, Integer> power = new LinkedHashMap<N, Integer>(inner.size() * 2);
+        for (N wire : inner) {
+            power.put(wire, level.get(wire));
+        }
+        return new RedstonePowerSolver<N>(power, depth.keySet());
+    }
+
+    private static <N> void discover(Map<N, Integer> depth, ArrayDeque<N> queue, N node, int d) {
+        if (!depth.containsKey(node)) {
+            depth.put(node, d);
+            queue.add(node);
+        }
+    }
+
+    /**
+     * Gets the solved power of every wire that may have changed, in breadth first order from the origins
+     *
+     * @return the solved power per wire
+     */
+    public Map<N, Integer> getPower() {
+        return power;
+    }
+
+    /**
+     * Gets every wire looked at, including the boundary wires whose power was taken as is
+     *
+     * @return the wires of the solved region
+     */
+    public Set<N> getRegion() {
+        return region;
+    }
+}
@@ -0,0 +1,144 @@
+package net.canarymod.hook;
+
+import com.google.common.collect.ImmutableSet;
+import net.canarymod.hook.system.PluginDisableHook;
+import net.canarymod.plugin.Plugin;
+import net.canarymod.plugin.PluginListener;
+import net.canarymod.plugin.Priority;
+import net.canarymod.tasks.TickScheduler;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The server's {@link HookExecutor}, which also keeps track of the hook types plugins listen for.
+ * <p/>
+ * Hot paths such as liquid flow use {@link #hasListeners(Class)} to skip building hooks nobody handles. Every way of
+ * registering and unregistering listeners goes through this class, which rebuilds the set of handled hook types
+ * each time. The set is replaced as a whole, so it is read without locking from any thread.
+ * <p/>
+ * A plugin being disabled, also as part of a reload, has its {@link TickScheduler} tasks cancelled.
+ */
+public class CanaryHookExecutor extends HookExecutor {
+    private static final Map<PluginListener, Set<Class<?>>> handledBy = new HashMap<PluginListener, Set<Class<?>>>();
+    private static final Map<Plugin, List<PluginListener>> listenersOf = new HashMap<Plugin, List<PluginListener>>();
+    private static volatile Set<Class<?>> handled = ImmutableSet.of();
+
+    @Override
+    public void registerListener(PluginListener listener, Plugin plugin) {
+        Set<Class<?>> types = new HashSet<Class<?>>();
+
+        index(listener.getClass().getMethods(), types);
+        index(listener.getClass().getDeclaredMethods(), types);
+        added(listener, plugin, types);
+        super.registerListener(listener, plugin);
+    }
+
+    @Override
+    public void registerHook(PluginListener listener, Plugin plugin, Class<? extends Hook> hook, Dispatcher dispatcher, Priority priority) {
+        Set<Class<?>> types = new HashSet<Class<?>>();
+
+        types.add(hook);
+        added(listener, plugin, types);
+        super.registerHook(listener, plugin, hook, dispatcher, priority);
+    }
+
+    @Override
+    public void unregisterPluginListeners(Plugin plugin) {
+        super.unregisterPluginListeners(plugin);
+        synchronized (handledBy) {
+            List<PluginListener> listeners = listenersOf.remove(plugin);
+
+            if (listeners != null) {
+                for (PluginListener listener : listeners) {
+                    handledBy.remove(listener);
+                }
+            }
+            rebuild();
+        }
+    }
+
+    @Override
+    public void unregisterPluginListener(PluginListener listener) {
+        super.unregisterPluginListener(listener);
+        synchronized (handledBy) {
+            handledBy.remove(listener);
+            Iterator<List<PluginListener>> iterator = listenersOf.values().iterator();
+
+            while (iterator.hasNext()) {
+                List<PluginListener> listeners = iterator.next();
+
+                listeners.remove(listener);
+                if (listeners.isEmpty()) {
+                    iterator.remove();
+                }
+            }
+            rebuild();
+        }
+    }
+
+    @Override
+    public void callHook(Hook hook) {
+        super.callHook(hook);
+        if (hook instanceof PluginDisableHook) {
+            TickScheduler.getInstance().cancelTasks(((PluginDisableHook) hook).getPlugin());
+        }
+    }
+
+    private static void index(Method[] methods, Set<Class<?>> types) {
+        for (Method method : methods) {
+            if (method.isAnnotationPresent(HookHandler.class) && method.getParameterTypes().length == 1) {
+                types.add(method.getParameterTypes()[0]);
+            }
+        }
+    }
+
+    private static void added(PluginListener listener, Plugin plugin, Set<Class<?>> types) {
+        synchronized (handledBy) {
+            Set<Class<?>> known = handledBy.get(listener);
+
+            if (known == null) {
+                handledBy.put(listener, types);
+                List<PluginListener> listeners = listenersOf.get(plugin);
+
+                if (listeners == null) {
+                    listeners = new ArrayList<PluginListener>();
+                    listenersOf.put(plugin, listeners);
+                }
+                listeners.add(listener);
+            }
+            else {
+                known.addAll(types);
+            }
+            rebuild();
+        }
+    }
+
+    // Called holding the lock on handledBy
+    private static void rebuild() {
+        ImmutableSet.Builder<Class<?>> builder = ImmutableSet.builder();
+
+        for (Set<Class<?>> types : handledBy.values()) {
+            builder.addAll(types);
+        }
+        handled = builder.build();
+    }
+
+    /**
+     * Checks whether any plugin registered a handler for the given hook type
+     *
+     * @param hook
+     *         the hook type
+     *
+     * @return true if the hook has to be called
+     */
+    public static boolean hasListeners(Class<? extends Hook> hook) {
+        return handled.contains(hook);
+    }
+}
@@ -0,0 +1,205 @@
+package net.canarymod.profiler;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.canarymod.Canary;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a rolling window of the most recent tick breakdowns.
+ * When a tick runs over the slow tick threshold the window is written to disk on a background thread,
+ * so the dump shows what led up to the slow tick as well as the tick itself.
+ */
+final class FlightRecorder {
+    private static final long minDumpIntervalMillis = 10000L;
+    private static final int maxDumpFiles = 50;
+    private static final int keptSlowest = 10;
+
+    private final TickRecord[] window;
+    private final File directory;
+    private final List<TickRecord> slowest = new ArrayList<TickRecord>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("Tick Flight Recorder").setDaemon(true).build());
+    private int next;
+    private long lastDump;
+
+    FlightRecorder(int size, String directory) {
+        this.window = new TickRecord[size];
+        this.directory = new File(directory);
+    }
+
+    void record(long tick, long nanos, List<Timing> sections, boolean slow) {
+        String[] names = new String[sections.size()];
+        long[] times = new long[sections.size()];
+        for (int i = 0; i < names.length; i++) {
+            Timing timing = sections.get(i);
+            names[i] = timing.getName();
+            times[i] = timing.currentNanos;
+        }
+        TickRecord record = new TickRecord(tick, System.currentTimeMillis(), nanos, names, times);
+        window[next] = record;
+        next = (next + 1) % window.length;
+
+        if (slow) {
+            keepSlowest(record);
+            long now = System.currentTimeMillis();
+            if (now - lastDump >= minDumpIntervalMillis) {
+                lastDump = now;
+                dump(record);
+            }
+        }
+    }
+
+    private void keepSlowest(TickRecord record) {
+        synchronized (slowest) {
+            if (slowest.size() == keptSlowest) {
+                if (slowest.get(keptSlowest - 1).nanos >= record.nanos) {
+                    return;
+                }
+                slowest.remove(keptSlowest - 1);
+            }
+            slowest.add(record);
+            Collections.sort(slowest, new Comparator<TickRecord>() {
+                @Override
+                public int compare(TickRecord r1, TickRecord r2) {
+                    return r1.nanos < r2.nanos ? 1 : r1.nanos == r2.nanos ? 0 : -1;
+                }
+            });
+        }
+    }
+
+    List<String> getSlowest() {
+        List<String> lines = new ArrayList<String>();
+        synchronized (slowest) {
+            for (TickRecord record : slowest) {
+                lines.add(record.toString());
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Writes the current window to disk
+     *
+     * @return the file the window is written to
+     */
+    File dumpNow() {
+        return dump(null);
+    }
+
+    private File dump(final TickRecord trigger) {
+        final List<TickRecord> records = new ArrayList<TickRecord>(window.length);
+        for (int i = 0; i < window.length; i++) {
+            TickRecord record = window[(next + i) % window.length];
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        final File file = new File(directory, "ticks-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + (trigger != null ? "-tick" + trigger.tick : "") + ".log");
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(file, trigger, records);
+            }
+        });
+        return file;
+    }
+
+    private void write(File file, TickRecord trigger, List<TickRecord> records) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            Canary.log.warn("Unable to create the flight recorder directory " + directory);
+            return;
+        }
+        PrintWriter out = null;
+        try {
+            out = new PrintWriter(new FileWriter(file));
+            if (trigger != null) {
+                out.println("Slow tick:");
+                trigger.write(out);
+                out.println();
+            }
+            out.println("Last " + records.size() + " ticks, oldest first:");
+            for (TickRecord record : records) {
+                record.write(out);
+            }
+        }
+        catch (IOException ioex) {
+            Canary.log.warn("Failed to write flight recorder dump " + file, ioex);
+        }
+        finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+        pruneDumps();
+    }
+
+    private void pruneDumps() {
+        File[] dumps = directory.listFiles();
+        if (dumps == null || dumps.length <= maxDumpFiles) {
+            return;
+        }
+        Arrays.sort(dumps, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                long m1 = f1.lastModified(), m2 = f2.lastModified();
+                return m1 < m2 ? -1 : m1 == m2 ? 0 : 1;
+            }
+        });
+        for (int i = 0; i < dumps.length - maxDumpFiles; i++) {
+            if (!dumps[i].delete()) {
+                Canary.log.debug("Unable to delete old flight recorder dump " + dumps[i]);
+            }
+        }
+    }
+
+    void shutdown() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class TickRecord {
+        final long tick;
+        final long time;
+        final long nanos;
+        final String[] names;
+        final long[] times;
+
+        TickRecord(long tick, long time, long nanos, String[] names, long[] times) {
+            this.tick = tick;
+            this.time = time;
+            this.nanos = nanos;
+            this.names = names;
+            this.times = times;
+        }
+
+        void write(PrintWriter out) {
+            out.println(toString());
+            for (int i = 0; i < names.length; i++) {
+                out.printf("    %-60s %8.3f ms%n", names[i], times[i] / 1000000.0D);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("tick %d at %tT: %.3f ms", tick, new Date(time), nanos / 1000000.0D);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package net.canarymod.profiler;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the {@link TickProfiler} timings in the Prometheus text exposition format on {@code /metrics}.
+ * The endpoint only binds to the loopback interface.
+ */
+final class MetricsHttpServer {
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    MetricsHttpServer(int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), port), 0);
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("Tick Profiler Metrics").setDaemon(true).build());
+        this.server.setExecutor(executor);
+        this.server.createContext("/metrics", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = render().getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                try {
+                    out.write(body);
+                }
+                finally {
+                    out.close();
+                }
+            }
+        });
+    }
+
+    void start() {
+        server.start();
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    static String render() {
+        StringBuilder out = new StringBuilder(4096);
+        Timing ticks = TickProfiler.getTicks();
+
+        header(out, "canary_ticks_total", "counter", "Server ticks profiled");
+        out.append("canary_ticks_total ").append(ticks.getCount()).append('\n');
+        header(out, "canary_tick_seconds_total", "counter", "Time spent in server ticks");
+        out.append("canary_tick_seconds_total ").append(seconds(ticks.getTotalNanos())).append('\n');
+        header(out, "canary_tick_seconds_max", "gauge", "Longest server tick");
+        out.append("canary_tick_seconds_max ").append(seconds(ticks.getMaxNanos())).append('\n');
+        header(out, "canary_tick_seconds_last", "gauge", "Duration of the last server tick");
+        out.append("canary_tick_seconds_last ").append(seconds(TickProfiler.getLastTickNanos())).append('\n');
+        header(out, "canary_slow_ticks_total", "counter", "Ticks over the slow tick threshold");
+        out.append("canary_slow_ticks_total ").append(TickProfiler.getSlowTicks()).append('\n');
+
+        header(out, "canary_phase_seconds_total", "counter", "Time spent per world and tick phase");
+        for (Map.Entry<String, Timing[]> entry : TickProfiler.getPhases().entrySet()) {
+            for (TickProfiler.Phase phase : TickProfiler.Phase.values()) {
+                out.append("canary_phase_seconds_total{world=\"").append(escape(entry.getKey())).append("\",phase=\"").append(phase.getLabel()).append("\"} ")
+                   .append(seconds(entry.getValue()[phase.ordinal()].getTotalNanos())).append('\n');
+            }
+        }
+        classes(out, "canary_entity_seconds_total", "Time spent ticking entities per class, sampled ticks only", TickProfiler.getEntities());
+        classes(out, "canary_tile_entity_seconds_total", "Time spent ticking tile entities per class, sampled ticks only", TickProfiler.getTileEntities());
+        classes(out, "canary_hook_seconds_total", "Time spent in plugin listeners per hook, sampled ticks only", TickProfiler.getHooks());
+        return out.toString();
+    }
+
+    private static void classes(StringBuilder out, String metric, String help, Map<Class<?>, Timing> timings) {
+        header(out, metric, "counter", help);
+        for (Timing timing : timings.values()) {
+            out.append(metric).append("{class=\"").append(escape(timing.getName())).append("\"} ").append(seconds(timing.getTotalNanos())).append('\n');
+        }
+    }
+
+    private static void header(StringBuilder out, String metric, String type, String help) {
+        out.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(metric).append(' ').append(type).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1000000000.0D);
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,23 @@
+package net.canarymod.profiler;
+
+import net.canarymod.hook.Hook;
+import net.canarymod.hook.CanaryHookExecutor;
+import net.canarymod.hook.HookExecutor;
+
+/**
+ * A {@link HookExecutor} that reports the time plugin listeners take per hook to the {@link TickProfiler}.
+ * Only installed when the profiler is enabled.
+ */
+public class ProfilingHookExecutor extends CanaryHookExecutor {
+
+    @Override
+    public void callHook(Hook hook) {
+        long start = TickProfiler.startSampled();
+        try {
+            super.callHook(hook);
+        }
+        finally {
+            TickProfiler.hook(hook.getClass(), start);
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package net.canarymod.profiler;
+
+import net.canarymod.Canary;
+import net.canarymod.api.ServerConfigSnapshot;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Attributes server tick time to worlds, tick phases, entity and tile entity classes and hooks.
+ * <p/>
+ * World phases are timed on every tick. The per-class and per-hook breakdowns are only taken on every
+ * {@code tick-profiler-sample-interval}th tick, which keeps the cost of timing thousands of entities low.
+ * Everything here is a no-op unless {@code tick-profiler-enabled} is set in the server configuration at start up.
+ * <p/>
+ * Only the server thread records; {@link #start()} returns 0 on any other thread, which the record methods ignore.
+ * The per-class and per-hook timings hold only their own time: a hook called while an entity ticks is taken out of the
+ * entity's time. Phases always hold all the time spent in them, sampled sections included, so their totals do not
+ * change between sampled and other ticks. Resets and dumps asked for from other threads wait for the end of
+ * the running tick and are done on the server thread.
+ */
+public final class TickProfiler {
+    /**
+     * The world name used for phases that are not bound to a world
+     */
+    public static final String SERVER = "server";
+
+    private static final boolean enabled = ServerConfigSnapshot.get().tickProfilerEnabled;
+
+    private static final ConcurrentHashMap<String, Timing[]> phases = new ConcurrentHashMap<String, Timing[]>();
+    private static final ConcurrentHashMap<Class<?>, Timing> entities = new ConcurrentHashMap<Class<?>, Timing>();
+    private static final ConcurrentHashMap<Class<?>, Timing> tileEntities = new ConcurrentHashMap<Class<?>, Timing>();
+    private static final ConcurrentHashMap<Class<?>, Timing> hooks = new ConcurrentHashMap<Class<?>, Timing>();
+    private static final Timing ticks = new Timing("tick");
+    private static final List<Timing> touched = new ArrayList<Timing>();
+    private static final ConcurrentLinkedQueue<Runnable> requests = new ConcurrentLinkedQueue<Runnable>();
+    // Time of the sections nested in each open section, by nesting depth
+    private static final long[] nested = new long[64];
+    private static int depth;
+
+    private static volatile Thread serverThread;
+    private static volatile long lastTickNanos;
+    private static volatile long slowTicks;
+    private static long tickStart;
+    private static long tickNumber;
+    private static boolean sampling;
+    private static FlightRecorder recorder;
+    private static MetricsHttpServer httpServer;
+
+    /**
+     * The tick phases time is attributed to
+     */
+    public enum Phase {
+        TASKS("tasks"),
+        SCHEDULED_TICKS("scheduled_ticks"),
+        BLOCK_TICKS("block_ticks"),
+        LIGHTING("lighting"),
+        CHUNK_IO("chunk_io"),
+        ENTITIES("entities"),
+        TILE_ENTITIES("tile_entities"),
+        TRACKER("tracker"),
+        NETWORK("network");
+
+        private final String label;
+
+        private Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private TickProfiler() {
+    }
+
+    /**
+     * Starts the exporters configured for the profiler.
+     * Called once while the server starts up.
+     */
+    public static synchronized void init() {
+        if (!enabled || recorder != null) {
+            return;
+        }
+        ServerConfigSnapshot cfg = ServerConfigSnapshot.get();
+        recorder = new FlightRecorder(cfg.tickProfilerRecorderTicks, cfg.tickProfilerDumpDirectory);
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new TickProfilerStats(), new ObjectName("net.canarymod:type=TickProfiler"));
+        }
+        catch (Exception ex) {
+            Canary.log.warn("Failed to register the tick profiler MBean", ex);
+        }
+
+        int port = cfg.tickProfilerHttpPort;
+        if (port > 0) {
+            try {
+                httpServer = new MetricsHttpServer(port);
+                httpServer.start();
+                Canary.log.info("Tick profiler metrics available at http://127.0.0.1:" + port + "/metrics");
+            }
+            catch (Exception ex) {
+                Canary.log.warn("Failed to start the tick profiler metrics endpoint on port " + port, ex);
+                httpServer = null;
+            }
+        }
+    }
+
+    /**
+     * Stops the exporters and writes out pending flight recorder dumps
+     */
+    public static synchronized void shutdown() {
+        if (httpServer != null) {
+            httpServer.stop();
+            httpServer = null;
+        }
+        if (recorder != null) {
+            recorder.shutdown();
+        }
+        try {
+            ObjectName name = new ObjectName("net.canarymod:type=TickProfiler");
+            if (ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            }
+        }
+        catch (Exception ex) {
+            Canary.log.debug("Failed to unregister the tick profiler MBean", ex);
+        }
+    }
+
+    /**
+     * Checks whether profiling is turned on
+     *
+     * @return true if enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Checks whether the running tick records per-class and per-hook timings
+     *
+     * @return true if the running tick is sampled
+     */
+    public static boolean isSampling() {
+        return sampling;
+    }
+
+    /**
+     * Marks the start of a server tick
+     */
+    public static void tickStart() {
+        if (!enabled) {
+            return;
+        }
+        if (serverThread == null) {
+            serverThread = Thread.currentThread();
+        }
+        sampling = tickNumber % ServerConfigSnapshot.get().tickProfilerSampleInterval == 0;
+        depth = 0;
+        nested[0] = 0L;
+        tickStart = System.nanoTime();
+    }
+
+    /**
+     * Marks the end of a server tick and hands it to the flight recorder
+     */
+    public static void tickEnd() {
+        if (!enabled || tickStart == 0) {
+            return;
+        }
+        long nanos = System.nanoTime() - tickStart;
+        ticks.add(nanos);
+        ticks.currentNanos = 0;
+        lastTickNanos = nanos;
+
+        boolean slow = nanos >= ServerConfigSnapshot.get().tickProfilerSlowTickNanos;
+        if (slow) {
+            slowTicks++;
+        }
+        if (recorder != null) {
+            recorder.record(tickNumber, nanos, touched, slow);
+        }
+        for (Timing timing : touched) {
+            timing.currentNanos = 0;
+        }
+        touched.clear();
+        tickNumber++;
+        tickStart = 0;
+
+        Runnable request;
+        while ((request = requests.poll()) != null) {
+            request.run();
+        }
+    }
+
+    /**
+     * Runs an action on the server thread at the end of the running tick and waits for it
+     *
+     * @param action
+     *         the action
+     *
+     * @return the action's result
+     *
+     * @throws Exception
+     *         if the action failed, or the server did not finish a tick within 10 seconds
+     */
+    static <V> V onServerThread(Callable<V> action) throws Exception {
+        if (serverThread == null || Thread.currentThread() == serverThread) {
+            return action.call();
+        }
+        FutureTask<V> task = new FutureTask<V>(action);
+
+        requests.add(task);
+        try {
+            return task.get(10, TimeUnit.SECONDS);
+        }
+        finally {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Gets a start time for a profiled section
+     *
+     * @return the current nano time, or 0 if profiling is off or this is not the server thread
+     */
+    public static long start() {
+        if (!enabled || Thread.currentThread() != serverThread) {
+            return 0L;
+        }
+        if (++depth < nested.length) {
+            nested[depth] = 0L;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Gets a start time for a section only timed on sampled ticks
+     *
+     * @return the current nano time, or 0 if the running tick is not sampled
+     */
+    public static long startSampled() {
+        return sampling ? start() : 0L;
+    }
+
+    /**
+     * Records a world phase
+     *
+     * @param world
+     *         the fully qualified world name, or {@link #SERVER}
+     * @param phase
+     *         the phase
+     * @param start
+     *         the value {@link #start()} returned
+     */
+    public static void phase(String world, Phase phase, long start) {
+        if (start == 0L) {
+            return;
+        }
+        Timing[] timings = phases.get(world);
+        if (timings == null) {
+            timings = new Timing[Phase.values().length];
+            for (Phase p : Phase.values()) {
+                timings[p.ordinal()] = new Timing(world + "/" + p.getLabel());
+            }
+            phases.put(world, timings);
+        }
+        add(timings[phase.ordinal()], end(start, false));
+    }
+
+    /**
+     * Records a ticked entity on a sampled tick
+     *
+     * @param entityClass
+     *         the entity's class
+     * @param start
+     *         the value {@link #startSampled()} returned
+     */
+    public static void entity(Class<?> entityClass, long start) {
+        record(entities, entityClass, start);
+    }
+
+    /**
+     * Records a ticked tile entity on a sampled tick
+     *
+     * @param tileEntityClass
+     *         the tile entity's class
+     * @param start
+     *         the value {@link #startSampled()} returned
+     */
+    public static void tileEntity(Class<?> tileEntityClass, long start) {
+        record(tileEntities, tileEntityClass, start);
+    }
+
+    /**
+     * Records a hook dispatched to plugin listeners on a sampled tick
+     *
+     * @param hookClass
+     *         the hook's class
+     * @param start
+     *         the value {@link #startSampled()} returned
+     */
+    public static void hook(Class<?> hookClass, long start) {
+        record(hooks, hookClass, start);
+    }
+
+    private static void record(ConcurrentHashMap<Class<?>, Timing> timings, Class<?> type, long start) {
+        if (start == 0L) {
+            return;
+        }
+        Timing timing = timings.get(type);
+        if (timing == null) {
+            timing = new Timing(type.getName());
+            timings.put(type, timing);
+        }
+        add(timing, end(start, true));
+    }
+
+    /**
+     * Closes the innermost open section
+     *
+     * @param start
+     *         the value {@link #start()} returned
+     * @param exclusive
+     *         whether to take out the time of the sections nested in it
+     *
+     * @return the section's time
+     */
+    private static long end(long start, boolean exclusive) {
+        long nanos = System.nanoTime() - start;
+        long own = exclusive && depth < nested.length ? nanos - nested[depth] : nanos;
+
+        if (depth > 0) {
+            --depth;
+            if (depth < nested.length) {
+                nested[depth] += nanos;
+            }
+        }
+        return Math.max(0L, own);
+    }
+
+    private static void add(Timing timing, long nanos) {
+        if (timing.currentNanos == 0) {
+            touched.add(timing);
+        }
+        timing.add(nanos);
+    }
+
+    /**
+     * Clears every accumulated timing, must be called on the server thread
+     */
+    public static void reset() {
+        ticks.reset();
+        for (Timing[] timings : phases.values()) {
+            for (Timing timing : timings) {
+                timing.reset();
+            }
+        }
+        resetAll(entities.values());
+        resetAll(tileEntities.values());
+        resetAll(hooks.values());
+        slowTicks = 0;
+    }
+
+    private static void resetAll(Collection<Timing> timings) {
+        for (Timing timing : timings) {
+            timing.reset();
+        }
+    }
+
+    static Timing getTicks() {
+        return ticks;
+    }
+
+    static long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    static long getSlowTicks() {
+        return slowTicks;
+    }
+
+    static Map<String, Timing[]> getPhases() {
+        return phases;
+    }
+
+    static Map<Class<?>, Timing> getEntities() {
+        return entities;
+    }
+
+    static Map<Class<?>, Timing> getTileEntities() {
+        return tileEntities;
+    }
+
+    static Map<Class<?>, Timing> getHooks() {
+        return hooks;
+    }
+
+    static FlightRecorder getRecorder() {
+        return recorder;
+    }
+}
@@ -0,0 +1,58 @@
+package net.canarymod.profiler;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JMX view of the {@link TickProfiler}.
+ * Registered as {@code net.canarymod:type=TickProfiler} when the profiler is enabled.
+ */
+public interface TickProfilerMXBean {
+
+    long getTickCount();
+
+    double getAverageTickMillis();
+
+    double getMaxTickMillis();
+
+    double getLastTickMillis();
+
+    long getSlowTickCount();
+
+    /**
+     * @return total milliseconds per {@code world/phase}
+     */
+    Map<String, Double> getPhaseMillis();
+
+    /**
+     * @return total milliseconds per entity class, taken on sampled ticks
+     */
+    Map<String, Double> getEntityMillis();
+
+    /**
+     * @return total milliseconds per tile entity class, taken on sampled ticks
+     */
+    Map<String, Double> getTileEntityMillis();
+
+    /**
+     * @return total milliseconds spent in plugin listeners per hook, taken on sampled ticks
+     */
+    Map<String, Double> getHookMillis();
+
+    /**
+     * @return the slowest ticks seen since start up, slowest first
+     */
+    List<String> getSlowestTicks();
+
+    /**
+     * Writes the flight recorder window to disk
+     *
+     * @return the path of the dump file
+     */
+    String dumpFlightRecorder() throws Exception;
+
+    /**
+     * Clears all accumulated timings
+     */
+    void reset() throws Exception;
+}
@@ -0,0 +1,100 @@
+package net.canarymod.profiler;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * The {@link TickProfilerMXBean} implementation
+ */
+public final class TickProfilerStats implements TickProfilerMXBean {
+
+    @Override
+    public long getTickCount() {
+        return TickProfiler.getTicks().getCount();
+    }
+
+    @Override
+    public double getAverageTickMillis() {
+        Timing ticks = TickProfiler.getTicks();
+        long count = ticks.getCount();
+        return count == 0 ? 0.0D : ticks.getTotalNanos() / (double) count / 1000000.0D;
+    }
+
+    @Override
+    public double getMaxTickMillis() {
+        return TickProfiler.getTicks().getMaxNanos() / 1000000.0D;
+    }
+
+    @Override
+    public double getLastTickMillis() {
+        return TickProfiler.getLastTickNanos() / 1000000.0D;
+    }
+
+    @Override
+    public long getSlowTickCount() {
+        return TickProfiler.getSlowTicks();
+    }
+
+    @Override
+    public Map<String, Double> getPhaseMillis() {
+        Map<String, Double> millis = new HashMap<String, Double>();
+        for (Timing[] timings : TickProfiler.getPhases().values()) {
+            for (Timing timing : timings) {
+                millis.put(timing.getName(), timing.getTotalNanos() / 1000000.0D);
+            }
+        }
+        return millis;
+    }
+
+    @Override
+    public Map<String, Double> getEntityMillis() {
+        return toMillis(TickProfiler.getEntities());
+    }
+
+    @Override
+    public Map<String, Double> getTileEntityMillis() {
+        return toMillis(TickProfiler.getTileEntities());
+    }
+
+    @Override
+    public Map<String, Double> getHookMillis() {
+        return toMillis(TickProfiler.getHooks());
+    }
+
+    @Override
+    public List<String> getSlowestTicks() {
+        return TickProfiler.getRecorder().getSlowest();
+    }
+
+    @Override
+    public String dumpFlightRecorder() throws Exception {
+        // The window is written by the server thread, so it is copied there too
+        return TickProfiler.onServerThread(new Callable<String>() {
+            @Override
+            public String call() {
+                return TickProfiler.getRecorder().dumpNow().getPath();
+            }
+        });
+    }
+
+    @Override
+    public void reset() throws Exception {
+        TickProfiler.onServerThread(new Callable<Void>() {
+            @Override
+            public Void call() {
+                TickProfiler.reset();
+                return null;
+            }
+        });
+    }
+
+    private static Map<String, Double> toMillis(Map<Class<?>, Timing> timings) {
+        Map<String, Double> millis = new HashMap<String, Double>();
+        for (Timing timing : timings.values()) {
+            millis.put(timing.getName(), timing.getTotalNanos() / 1000000.0D);
+        }
+        return millis;
+    }
+}
@@ -0,0 +1,68 @@
+package net.canarymod.profiler;
+
+/**
+ * Accumulated timings for one profiled section.
+ * Only the server thread writes to a Timing; the exporters read the volatile totals from their own threads.
+ */
+public final class Timing {
+    private final String name;
+    private volatile long count;
+    private volatile long totalNanos;
+    private volatile long maxNanos;
+    long currentNanos; // accumulated during the running tick, server thread only
+
+    Timing(String name) {
+        this.name = name;
+    }
+
+    void add(long nanos) {
+        count++;
+        totalNanos += nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+        currentNanos += nanos;
+    }
+
+    void reset() {
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    /**
+     * Gets the name of the profiled section
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets how many times the section was timed
+     *
+     * @return the sample count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the total time spent in the section
+     *
+     * @return the total time in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Gets the longest single run of the section
+     *
+     * @return the maximum time in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+}
@@ -0,0 +1,393 @@
+package net.canarymod.tasks;
+
+import net.canarymod.Canary;
+import net.canarymod.api.ServerConfigSnapshot;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs tasks on the server thread within a time budget per tick.
+ * <p/>
+ * Tasks may be scheduled from any thread and start on the first tick they are due. Due tasks run highest
+ * {@link Priority} first and in the order they became due within a priority, until {@code scheduler-tick-budget-ms}
+ * is used up, a reloaded budget applying from the next tick. Whatever is left runs first on the next tick, and at
+ * least one task runs every tick so nothing stalls. The time each {@link TaskOwner} takes is accounted in its
+ * {@link OwnerStats}. {@link #runSync(TaskOwner, Runnable)} and {@link #callSync(TaskOwner, Callable)} hand work from
+ * other threads to the server thread.
+ * <p/>
+ * {@link ServerTask}s added to the {@link ServerTaskManager} keep running as they always did, ahead of these tasks.
+ */
+public final class TickScheduler {
+
+    /**
+     * The order in which due tasks run
+     */
+    public enum Priority {
+        HIGH,
+        NORMAL,
+        LOW
+    }
+
+    private static final class Holder {
+        static final TickScheduler instance;
+
+        static {
+            instance = new TickScheduler(ServerConfigSnapshot.get().schedulerBudgetNanos);
+            ServerConfigSnapshot.addListener(new ServerConfigSnapshot.Listener() {
+                @Override
+                public void snapshotReloaded(ServerConfigSnapshot snapshot) {
+                    instance.budgetNanos = snapshot.schedulerBudgetNanos;
+                }
+            });
+        }
+    }
+
+    private volatile long budgetNanos;
+    private final ConcurrentLinkedQueue<Task> incoming = new ConcurrentLinkedQueue<Task>();
+    private final PriorityQueue<Task> delayed = new PriorityQueue<Task>(64, new Comparator<Task>() {
+        @Override
+        public int compare(Task a, Task b) {
+            if (a.dueTick != b.dueTick) {
+                return a.dueTick < b.dueTick ? -1 : 1;
+            }
+            return a.sequence < b.sequence ? -1 : a.sequence == b.sequence ? 0 : 1;
+        }
+    });
+    private final ArrayDeque<Task>[] ready;
+    private final Set<Task> live = Collections.newSetFromMap(new ConcurrentHashMap<Task, Boolean>());
+    private final ConcurrentHashMap<TaskOwner, OwnerStats> owners = new ConcurrentHashMap<TaskOwner, OwnerStats>();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile long tick;
+
+    @SuppressWarnings("unchecked")
+    TickScheduler(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+        this.ready = new ArrayDeque[Priority.values().length];
+        for (int i0 = 0; i0 < ready.length; ++i0) {
+            ready[i0] = new ArrayDeque<Task>();
+        }
+    }
+
+    /**
+     * Gets the scheduler of the server
+     *
+     * @return the scheduler
+     */
+    public static TickScheduler getInstance() {
+        return Holder.instance;
+    }
+
+    /**
+     * Schedules a task to run once
+     *
+     * @param owner
+     *         the owner of the task
+     * @param runnable
+     *         the work to do
+     * @param delay
+     *         the ticks to wait, 0 or 1 to run on the next tick
+     * @param priority
+     *         the priority
+     *
+     * @return the scheduled task
+     */
+    public Task schedule(TaskOwner owner, Runnable runnable, long delay, Priority priority) {
+        return add(new Task(owner, runnable, priority, delay, 0L));
+    }
+
+    /**
+     * Schedules a task to run again and again
+     *
+     * @param owner
+     *         the owner of the task
+     * @param runnable
+     *         the work to do
+     * @param delay
+     *         the ticks to wait before the first run, 0 or 1 to run on the next tick
+     * @param period
+     *         the ticks from the end of one run to the next
+     * @param priority
+     *         the priority
+     *
+     * @return the scheduled task
+     */
+    public Task scheduleRepeating(TaskOwner owner, Runnable runnable, long delay, long period, Priority priority) {
+        return add(new Task(owner, runnable, priority, delay, Math.max(1L, period)));
+    }
+
+    /**
+     * Hands work from any thread to the server thread, to run on the next tick
+     *
+     * @param owner
+     *         the owner of the work
+     * @param runnable
+     *         the work to do
+     *
+     * @return the scheduled task
+     */
+    public Task runSync(TaskOwner owner, Runnable runnable) {
+        return schedule(owner, runnable, 0L, Priority.NORMAL);
+    }
+
+    /**
+     * Hands work with a result from any thread to the server thread, to run on the next tick
+     *
+     * @param owner
+     *         the owner of the work
+     * @param callable
+     *         the work to do
+     *
+     * @return the future result, which also carries an exception the work threw
+     */
+    public <V> Future<V> callSync(TaskOwner owner, Callable<V> callable) {
+        FutureTask<V> future = new FutureTask<V>(callable);
+
+        runSync(owner, future);
+        return future;
+    }
+
+    private Task add(Task task) {
+        live.add(task);
+        incoming.add(task);
+        return task;
+    }
+
+    /**
+     * Cancels every task of an owner, such as a plugin being disabled
+     *
+     * @param owner
+     *         the owner
+     */
+    public void cancelTasks(TaskOwner owner) {
+        for (Task task : live) {
+            if (task.owner == owner) {
+                task.cancel();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of tasks that have yet to run or, if repeating, were not cancelled
+     *
+     * @return the number of scheduled tasks
+     */
+    public int getPendingCount() {
+        return live.size();
+    }
+
+    /**
+     * Gets the time the tasks of an owner took
+     *
+     * @param owner
+     *         the owner
+     *
+     * @return the stats, or null if no task of the owner ran yet
+     */
+    public OwnerStats getOwnerStats(TaskOwner owner) {
+        return owners.get(owner);
+    }
+
+    /**
+     * Gets the time the tasks of every owner took
+     *
+     * @return the stats by owner
+     */
+    public Map<TaskOwner, OwnerStats> getOwnerStats() {
+        return Collections.unmodifiableMap(owners);
+    }
+
+    /**
+     * Runs the due tasks, called once per tick on the server thread
+     */
+    public void runTasks() {
+        long current = ++tick;
+        Task task;
+
+        while ((task = incoming.poll()) != null) {
+            delayed.add(task);
+        }
+        while (!delayed.isEmpty() && delayed.peek().dueTick <= current) {
+            task = delayed.poll();
+            ready[task.priority.ordinal()].add(task);
+        }
+
+        long budget = budgetNanos;
+        long start = System.nanoTime();
+        long now = start;
+        boolean ran = false;
+
+        while (!ran || now - start < budget) {
+            task = pollReady();
+            if (task == null) {
+                break;
+            }
+            if (task.cancelled) {
+                continue;
+            }
+            try {
+                task.runnable.run();
+            }
+            catch (Throwable ex) {
+                // Still accounted and dropped below, so a failing task does not stay scheduled
+                Canary.log.error("A task of " + task.owner + " failed", ex);
+            }
+            long end = System.nanoTime();
+
+            account(task.owner, end - now);
+            now = end;
+            ran = true;
+            if (task.period > 0 && !task.cancelled) {
+                task.dueTick = current + task.period;
+                delayed.add(task);
+            }
+            else {
+                live.remove(task);
+            }
+        }
+    }
+
+    private Task pollReady() {
+        for (ArrayDeque<Task> queue : ready) {
+            if (!queue.isEmpty()) {
+                return queue.poll();
+            }
+        }
+        return null;
+    }
+
+    private void account(TaskOwner owner, long nanos) {
+        OwnerStats stats = owners.get(owner);
+
+        if (stats == null) {
+            stats = new OwnerStats();
+            OwnerStats raced = owners.putIfAbsent(owner, stats);
+
+            if (raced != null) {
+                stats = raced;
+            }
+        }
+        stats.add(nanos);
+    }
+
+    /**
+     * A task scheduled with a {@link TickScheduler}
+     */
+    public final class Task {
+        private final TaskOwner owner;
+        private final Runnable runnable;
+        private final Priority priority;
+        private final long period;
+        private final long sequence;
+        private long dueTick;
+        private volatile boolean cancelled;
+
+        private Task(TaskOwner owner, Runnable runnable, Priority priority, long delay, long period) {
+            this.owner = owner;
+            this.runnable = runnable;
+            this.priority = priority;
+            this.period = period;
+            this.sequence = TickScheduler.this.sequence.getAndIncrement();
+            this.dueTick = tick + Math.max(1L, delay);
+        }
+
+        /**
+         * Gets the owner of this task
+         *
+         * @return the owner
+         */
+        public TaskOwner getOwner() {
+            return owner;
+        }
+
+        /**
+         * Gets the priority of this task
+         *
+         * @return the priority
+         */
+        public Priority getPriority() {
+            return priority;
+        }
+
+        /**
+         * Checks whether this task runs again and again
+         *
+         * @return true if repeating
+         */
+        public boolean isRepeating() {
+            return period > 0;
+        }
+
+        /**
+         * Cancels this task, a run already started is finished
+         */
+        public void cancel() {
+            cancelled = true;
+            live.remove(this);
+        }
+
+        /**
+         * Checks whether this task was cancelled
+         *
+         * @return true if cancelled
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /**
+     * The time taken by the tasks of one owner.
+     * Only the server thread writes, other threads read the volatile totals.
+     */
+    public static final class OwnerStats {
+        private volatile long runs;
+        private volatile long totalNanos;
+        private volatile long maxNanos;
+
+        void add(long nanos) {
+            runs++;
+            totalNanos += nanos;
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+            }
+        }
+
+        /**
+         * Gets how many times a task of the owner ran
+         *
+         * @return the run count
+         */
+        public long getRuns() {
+            return runs;
+        }
+
+        /**
+         * Gets the total time the tasks of the owner took
+         *
+         * @return the total time in nanoseconds
+         */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /**
+         * Gets the longest single run of a task of the owner
+         *
+         * @return the maximum time in nanoseconds
+         */
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+    }
+}
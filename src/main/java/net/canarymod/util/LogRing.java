@@ -0,0 +1,202 @@
+package net.canarymod.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded lock-free ring of log lines between the threads that log and the thread that writes them out.
+ * <p/>
+ * Every slot carries a sequence number telling whether it is free to be written or ready to be read, so any number of
+ * threads may add and take lines without a lock. When the ring is full the {@link OverflowPolicy} decides which line
+ * is lost, and every lost line is counted.
+ */
+public class LogRing {
+
+    /**
+     * What happens to a line added to a full ring
+     */
+    public enum OverflowPolicy {
+        /**
+         * The new line is dropped
+         */
+        DROP_NEWEST,
+        /**
+         * The oldest waiting line is dropped to make room for the new one
+         */
+        DROP_OLDEST;
+
+        /**
+         * Gets a policy by name, ignoring case and treating dashes as underscores
+         *
+         * @param name
+         *         the name
+         * @param fallback
+         *         the policy to use if the name is unknown
+         *
+         * @return the policy
+         */
+        public static OverflowPolicy fromString(String name, OverflowPolicy fallback) {
+            if (name != null) {
+                for (OverflowPolicy policy : values()) {
+                    if (policy.name().equalsIgnoreCase(name.trim().replace('-', '_'))) {
+                        return policy;
+                    }
+                }
+            }
+            return fallback;
+        }
+    }
+
+    private final int mask;
+    private final AtomicReferenceArray<String> lines;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final OverflowPolicy policy;
+
+    /**
+     * Creates a ring
+     *
+     * @param capacity
+     *         the least number of lines the ring holds, rounded up to a power of two
+     * @param policy
+     *         what to do when the ring is full
+     */
+    public LogRing(int capacity, OverflowPolicy policy) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+
+        this.mask = size - 1;
+        this.lines = new AtomicReferenceArray<String>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i0 = 0; i0 < size; ++i0) {
+            sequences.set(i0, i0);
+        }
+        this.policy = policy;
+    }
+
+    /**
+     * Adds a line, never waiting
+     *
+     * @param line
+     *         the line
+     *
+     * @return false if a line had to be dropped
+     */
+    public boolean offer(String line) {
+        while (true) {
+            if (tryOffer(line)) {
+                return true;
+            }
+            dropped.incrementAndGet();
+            if (policy == OverflowPolicy.DROP_NEWEST) {
+                return false;
+            }
+            // Make room by dropping the oldest, then try again
+            if (poll() == null) {
+                // Taken by the reader meanwhile, the drop was not needed after all
+                dropped.decrementAndGet();
+            }
+            else if (tryOffer(line)) {
+                return false;
+            }
+        }
+    }
+
+    private boolean tryOffer(String line) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    lines.set(index, line);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            }
+            else if (difference < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Takes the oldest line
+     *
+     * @return the line, or null if the ring is empty
+     */
+    public String poll() {
+        while (true) {
+            long position = head.get();
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    String line = lines.getAndSet(index, null);
+                    sequences.set(index, position + mask + 1);
+                    return line;
+                }
+            }
+            else if (difference < 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Moves up to the given number of lines into a list, oldest first
+     *
+     * @param batch
+     *         the list to add to
+     * @param max
+     *         the most lines to take
+     *
+     * @return the number of lines taken
+     */
+    public int drainTo(List<String> batch, int max) {
+        int taken = 0;
+
+        while (taken < max) {
+            String line = poll();
+
+            if (line == null) {
+                break;
+            }
+            batch.add(line);
+            ++taken;
+        }
+        return taken;
+    }
+
+    /**
+     * Checks whether there are no lines waiting
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    /**
+     * Gets the number of lines this ring holds at most
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Gets the number of lines dropped because the ring was full
+     *
+     * @return the dropped line count
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
@@ -5,21 +5,28 @@
  */
 package net.canarymod.util;
 
-import com.google.common.collect.ImmutableMap;
 import com.mojang.util.QueueLogAppender;
 import jline.console.ConsoleReader;
+import net.canarymod.api.ServerConfigSnapshot;
 import net.canarymod.chat.ChatFormat;
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.apache.commons.lang3.tuple.Pair;
 import org.fusesource.jansi.Ansi;
-import org.fusesource.jansi.Ansi.Color;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
+ * Writes the console log to the terminal.
+ * <p/>
+ * Log lines are moved from the log appender into a {@link LogRing} as they come, so logging never waits on the
+ * terminal. This thread takes them from the ring in batches of up to {@code console-batch-lines} lines, translates
+ * colour codes through a table built once, and writes and flushes every batch in one go. When the terminal falls so
+ * far behind that {@code console-buffer-lines} lines wait, {@code console-overflow-policy} ({@code drop-oldest} or
+ * {@code drop-newest}) decides which lines are lost, and the number lost is written to the console. A reloaded
+ * {@code console-batch-lines} applies to the next batch.
  *
  * @author willem
  */
@@ -27,72 +34,109 @@ public class SysOutWriterThread extends Thread {
 
     private final OutputStream out;
     private final ConsoleReader reader;
+    private final LogRing ring;
+    private volatile int batchSize;
+    private final List<String> batch = new ArrayList<String>();
+    private final StringBuilder text = new StringBuilder(1024);
+    private long reportedDrops;
+    private Thread drain;
 
-    private static final Pattern colourPattern = Pattern.compile("\u00a7[0-9a-fk-or]", Pattern.CASE_INSENSITIVE);
-    private static final ImmutableMap<String, Ansi.Attribute> attributeMap =
-            ImmutableMap.<String, Ansi.Attribute>builder()
-            .put("\u00a7k", Ansi.Attribute.NEGATIVE_ON)
-            .put("\u00a7l", Ansi.Attribute.INTENSITY_BOLD)
-            .put("\u00a7m", Ansi.Attribute.STRIKETHROUGH_ON)
-            .put("\u00a7n", Ansi.Attribute.UNDERLINE)
-            .put("\u00a7o", Ansi.Attribute.ITALIC)
-            .put("\u00a7r", Ansi.Attribute.RESET)
-            .build();
-    private static final ImmutableMap<String, Pair<Ansi.Color, Boolean>> colourMap =
-            ImmutableMap.<String, Pair<Ansi.Color, Boolean>>builder()
-            .put("\u00a70", new ImmutablePair<Color, Boolean>(Ansi.Color.BLACK, false))
-            .put("\u00a71", new ImmutablePair<Color, Boolean>(Ansi.Color.BLUE, false))
-            .put("\u00a72", new ImmutablePair<Color, Boolean>(Ansi.Color.GREEN, false))
-            .put("\u00a73", new ImmutablePair<Color, Boolean>(Ansi.Color.CYAN, false))
-            .put("\u00a74", new ImmutablePair<Color, Boolean>(Ansi.Color.RED, false))
-            .put("\u00a75", new ImmutablePair<Color, Boolean>(Ansi.Color.MAGENTA, false))
-            .put("\u00a76", new ImmutablePair<Color, Boolean>(Ansi.Color.YELLOW, false))
-            .put("\u00a77", new ImmutablePair<Color, Boolean>(Ansi.Color.WHITE, false))
-            .put("\u00a78", new ImmutablePair<Color, Boolean>(Ansi.Color.BLACK, true))
-            .put("\u00a79", new ImmutablePair<Color, Boolean>(Ansi.Color.BLUE, true))
-            .put("\u00a7a", new ImmutablePair<Color, Boolean>(Ansi.Color.GREEN, true))
-            .put("\u00a7b", new ImmutablePair<Color, Boolean>(Ansi.Color.CYAN, true))
-            .put("\u00a7c", new ImmutablePair<Color, Boolean>(Ansi.Color.RED, true))
-            .put("\u00a7d", new ImmutablePair<Color, Boolean>(Ansi.Color.MAGENTA, true))
-            .put("\u00a7e", new ImmutablePair<Color, Boolean>(Ansi.Color.YELLOW, true))
-            .put("\u00a7f", new ImmutablePair<Color, Boolean>(Ansi.Color.WHITE, true))
-            .build();
+    /**
+     * The ANSI sequence for each colour code character, null for characters that are not a code
+     */
+    private static final String[] ansiCodes = new String[128];
+
+    static {
+        Ansi.Color[] colours = { Ansi.Color.BLACK, Ansi.Color.BLUE, Ansi.Color.GREEN, Ansi.Color.CYAN, Ansi.Color.RED, Ansi.Color.MAGENTA, Ansi.Color.YELLOW, Ansi.Color.WHITE };
+        String hex = "0123456789abcdef";
+
+        for (int i0 = 0; i0 < 16; ++i0) {
+            Ansi ansi = Ansi.ansi().reset();
+            code(hex.charAt(i0), (i0 < 8 ? ansi.fg(colours[i0]) : ansi.fgBright(colours[i0 - 8])).toString());
+        }
+        code('k', Ansi.ansi().a(Ansi.Attribute.NEGATIVE_ON).toString());
+        code('l', Ansi.ansi().a(Ansi.Attribute.INTENSITY_BOLD).toString());
+        code('m', Ansi.ansi().a(Ansi.Attribute.STRIKETHROUGH_ON).toString());
+        code('n', Ansi.ansi().a(Ansi.Attribute.UNDERLINE).toString());
+        code('o', Ansi.ansi().a(Ansi.Attribute.ITALIC).toString());
+        // Not formatting codes, but always stripped from console lines
+        code('p', "");
+        code('q', "");
+        code('r', Ansi.ansi().a(Ansi.Attribute.RESET).toString());
+    }
+
+    private static void code(char c, String sequence) {
+        ansiCodes[c] = sequence;
+        ansiCodes[Character.toUpperCase(c)] = sequence;
+    }
 
     public SysOutWriterThread(OutputStream out, ConsoleReader reader) {
+        this(out, reader, createRing(), ServerConfigSnapshot.get().consoleBatchLines);
+        ServerConfigSnapshot.addListener(new ServerConfigSnapshot.Listener() {
+            @Override
+            public void snapshotReloaded(ServerConfigSnapshot snapshot) {
+                batchSize = snapshot.consoleBatchLines;
+            }
+        });
+        // Move lines from the appender as soon as they are logged, the appender throws its lines away once 250 wait
+        this.drain = new Thread("Console Log Drain") {
+            @Override
+            public void run() {
+                String message;
+
+                while ((message = QueueLogAppender.getNextLogEvent("SysOut")) != null) {
+                    ring.offer(message);
+                    LockSupport.unpark(SysOutWriterThread.this);
+                }
+            }
+        };
+        this.drain.setDaemon(true);
+    }
+
+    /**
+     * Creates a writer taking its lines from the given ring, for writing to a terminal other than the server console
+     *
+     * @param out
+     *         where to write
+     * @param reader
+     *         the console reader to redraw the prompt of, or null to write plain text
+     * @param ring
+     *         the lines to write
+     * @param batchSize
+     *         the most lines to write at once
+     */
+    public SysOutWriterThread(OutputStream out, ConsoleReader reader, LogRing ring, int batchSize) {
+        super("Console Writer");
         this.out = out;
         this.reader = reader;
-    }    
+        this.ring = ring;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Starts writing, and for the server console also moving lines from the log appender
+     */
+    @Override
+    public synchronized void start() {
+        if (this.drain != null) {
+            this.drain.start();
+        }
+        super.start();
+    }
+
+    private static LogRing createRing() {
+        ServerConfigSnapshot snapshot = ServerConfigSnapshot.get();
+
+        return new LogRing(snapshot.consoleBufferLines, LogRing.OverflowPolicy.fromString(snapshot.consoleOverflowPolicy, LogRing.OverflowPolicy.DROP_OLDEST));
+    }
 
     @Override
     @SuppressWarnings("CallToThreadDumpStack")
     public void run() {
-        String message; // Allocate once! :D
-
         while (true) {
-            message = QueueLogAppender.getNextLogEvent("SysOut");
-            if (message == null) {
-                continue;
-            }
-
             try {
-                if (this.reader == null) {
-                    out.write(ChatFormat.removeFormatting(message).getBytes());
-                    out.flush();
-                }
-                else {
-                    Thread.sleep(5);
-                    reader.print(ConsoleReader.RESET_LINE + "");
-                    reader.flush();
-                    out.write(replaceColours(message).getBytes());
-                    out.flush();
-
-                    try {
-                        reader.drawLine();
-                    }
-                    catch (IOException e) {
-                        reader.getCursorBuffer().clear();
-                    }
-                    reader.flush();
+                if (writeBatch() == 0) {
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(50));
                 }
             }
             catch (IOException e) {
@@ -100,42 +144,89 @@ public class SysOutWriterThread extends Thread {
                 System.err.println("Error while printing to ConsoleReader");
                 e.printStackTrace();
             }
-            catch (InterruptedException ex) {
-            }
         }
     }
 
-    private String replaceColours(String toProcess) throws IOException {
-        if (!reader.getTerminal().isAnsiSupported()) {
-            return ChatFormat.removeFormatting(toProcess);
+    /**
+     * Writes the next batch of waiting lines
+     *
+     * @return the number of lines taken from the ring
+     *
+     * @throws IOException
+     *         if writing failed
+     */
+    int writeBatch() throws IOException {
+        batch.clear();
+        int taken = ring.drainTo(batch, batchSize);
+        long drops = ring.getDroppedCount();
+
+        if (taken == 0 && drops == reportedDrops) {
+            return 0;
+        }
+        boolean ansi = reader != null && reader.getTerminal().isAnsiSupported();
+
+        text.setLength(0);
+        if (drops != reportedDrops) {
+            text.append("[Console] ").append(drops - reportedDrops).append(" log lines were dropped, the console could not keep up").append(System.getProperty("line.separator"));
+            reportedDrops = drops;
+        }
+        for (int i0 = 0; i0 < batch.size(); ++i0) {
+            if (ansi) {
+                appendColoured(text, batch.get(i0));
+            }
+            else {
+                text.append(ChatFormat.removeFormatting(batch.get(i0)));
+            }
+        }
+        batch.clear();
+
+        if (this.reader == null) {
+            out.write(text.toString().getBytes());
+            out.flush();
         }
         else {
-            Matcher matcher = colourPattern.matcher(toProcess);
-            boolean result = matcher.find();
-            if (result) {
-                StringBuffer sb = new StringBuffer();
-                do {
-                    String match = matcher.group();
-                    String replacement = "";
-                    if (colourMap.containsKey(match)) {
-                        Ansi replace = Ansi.ansi().reset();
-                        replace = colourMap.get(match).getRight() ? replace.fgBright(colourMap.get(match).getLeft())
-                                                                  : replace.fg(colourMap.get(match).getLeft());
-                        replacement = replace.toString();
-                    }
-                    else if (attributeMap.containsKey(match)) {
-                        replacement = Ansi.ansi().a(attributeMap.get(match)).toString();
-                    }
-
-                    matcher.appendReplacement(sb, replacement);
-                    result = matcher.find();
-                } while (result);
-                matcher.appendTail(sb);
-                sb.append(Ansi.ansi().reset());
-
-                return sb.toString();
+            reader.print(ConsoleReader.RESET_LINE + "");
+            reader.flush();
+            out.write(text.toString().getBytes());
+            out.flush();
+
+            try {
+                reader.drawLine();
+            }
+            catch (IOException e) {
+                reader.getCursorBuffer().clear();
             }
-            return toProcess;
+            reader.flush();
+        }
+        return taken;
+    }
+
+    /**
+     * Appends a line with its colour codes turned into ANSI sequences
+     *
+     * @param sb
+     *         the builder to append to
+     * @param toProcess
+     *         the line
+     */
+    static void appendColoured(StringBuilder sb, String toProcess) {
+        int start = 0;
+        boolean replaced = false;
+
+        for (int i0 = toProcess.indexOf('\u00a7'); i0 >= 0 && i0 + 1 < toProcess.length(); i0 = toProcess.indexOf('\u00a7', i0 + 1)) {
+            char c = toProcess.charAt(i0 + 1);
+            String sequence = c < ansiCodes.length ? ansiCodes[c] : null;
+
+            if (sequence != null) {
+                sb.append(toProcess, start, i0).append(sequence);
+                start = i0 + 2;
+                replaced = true;
+                ++i0;
+            }
+        }
+        sb.append(toProcess, start, toProcess.length());
+        if (replaced) {
+            sb.append(Ansi.ansi().reset());
         }
     }
 }
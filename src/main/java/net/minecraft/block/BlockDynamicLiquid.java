@@ -1,7 +1,10 @@
 package net.minecraft.block;
 
+import net.canarymod.api.world.BlockWatch;
 import net.canarymod.api.world.blocks.BlockType;
 import net.canarymod.api.world.blocks.CanaryBlock;
+import net.canarymod.api.world.blocks.LiquidSpreadSearch;
+import net.canarymod.hook.CanaryHookExecutor;
 import net.canarymod.hook.world.FlowHook;
 import net.canarymod.hook.world.LiquidDestroyHook;
 import net.minecraft.block.material.Material;
@@ -9,18 +12,28 @@ import net.minecraft.block.state.IBlockState;
 import net.minecraft.init.Blocks;
 import net.minecraft.util.BlockPos;
 import net.minecraft.util.EnumFacing;
+import net.minecraft.world.ChunkCoordIntPair;
 import net.minecraft.world.IBlockAccess;
 import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
 
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 public class BlockDynamicLiquid extends BlockLiquid {
 
     int a;
 
+    // CanaryMod: the spread searches of this liquid per world and chunk, kept until a block they read changes
+    private static final EnumFacing[] sides = new EnumFacing[]{ EnumFacing.NORTH, EnumFacing.EAST, EnumFacing.SOUTH, EnumFacing.WEST };
+    private final Map<World, Map<Long, SpreadMemo>> spreadMemos = new WeakHashMap<World, Map<Long, SpreadMemo>>();
+
     protected BlockDynamicLiquid(Material material) {
         super(material);
     }
@@ -31,8 +44,8 @@ public class BlockDynamicLiquid extends BlockLiquid {
 
     public void b(World world, BlockPos blockpos, IBlockState iblockstate, Random random) {
 
-        // CanaryMod: Flow from
-        CanaryBlock from = CanaryBlock.getPooledBlock(iblockstate, blockpos, world);
+        // CanaryMod: Flow from, only looked up if a plugin listens for flows
+        CanaryBlock from = CanaryHookExecutor.hasListeners(FlowHook.class) ? CanaryBlock.getPooledBlock(iblockstate, blockpos, world) : null;
         //
 
         int i0 = ((Integer)iblockstate.b(b)).intValue();
@@ -117,7 +130,7 @@ public class BlockDynamicLiquid extends BlockLiquid {
             }
 
             // CanaryMod: Flow (down)
-            if (!new FlowHook(from, CanaryBlock.getPooledBlock(iblockstate, blockpos.b(), world)).call().isCanceled()) {
+            if (from == null || !new FlowHook(from, CanaryBlock.getPooledBlock(iblockstate, blockpos.b(), world)).call().isCanceled()) {
                 if (i0 >= 8) {
                     this.a(world, blockpos.b(), iblockstate2, i0);
                 }
@@ -145,7 +158,7 @@ public class BlockDynamicLiquid extends BlockLiquid {
                 EnumFacing enumfacing1 = (EnumFacing)iterator1.next();
 
                 // CanaryMod: Flow
-                if (!new FlowHook(from, CanaryBlock.getPooledBlock(iblockstate, blockpos.a(enumfacing1), world)).call().isCanceled()) {
+                if (from == null || !new FlowHook(from, CanaryBlock.getPooledBlock(iblockstate, blockpos.a(enumfacing1), world)).call().isCanceled()) {
                     this.a(world, blockpos.a(enumfacing1), world.p(blockpos.a(enumfacing1)), i2);
                 }
                 //
@@ -168,34 +181,109 @@ public class BlockDynamicLiquid extends BlockLiquid {
         }
     }
 
-    private int a(World world, BlockPos blockpos, int i0, EnumFacing enumfacing) {
-        int i1 = 1000;
-        Iterator iterator = EnumFacing.Plane.HORIZONTAL.iterator();
+    // CanaryMod: the drop search, memoized across the updates of this liquid in a chunk until a block it read changes
+    private LiquidSpreadSearch<BlockPos> f(World world, BlockPos blockpos) {
+        Map<Long, SpreadMemo> memos = this.spreadMemos.get(world);
+
+        if (memos == null) {
+            memos = new LinkedHashMap<Long, SpreadMemo>(16, 0.75F, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, SpreadMemo> eldest) {
+                    if (this.size() > 64) {
+                        eldest.getValue().release();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+            this.spreadMemos.put(world, memos);
+        }
 
-        while (iterator.hasNext()) {
-            EnumFacing enumfacing1 = (EnumFacing)iterator.next();
+        Long key = ChunkCoordIntPair.a(blockpos.n() >> 4, blockpos.p() >> 4);
+        SpreadMemo memo = memos.get(key);
 
-            if (enumfacing1 != enumfacing) {
-                BlockPos blockpos1 = blockpos.a(enumfacing1);
-                IBlockState iblockstate = world.p(blockpos1);
+        if (memo == null || !memo.isCurrent()) {
+            if (memo != null) {
+                memo.release();
+            }
+            memo = new SpreadMemo(world);
+            memos.put(key, memo);
+        }
+        return memo.search;
+    }
 
-                if (!this.g(world, blockpos1, iblockstate) && (iblockstate.c().r() != this.J || ((Integer)iblockstate.b(b)).intValue() > 0)) {
-                    if (!this.g(world, blockpos1.b(), iblockstate)) {
-                        return i0;
-                    }
+    // CanaryMod: a spread search along with the chunks it read, stale once a block it looked at is set
+    private final class SpreadMemo implements BlockWatch.Watcher {
+        private final World world;
+        private final Map<Long, Chunk> chunks = new HashMap<Long, Chunk>(4); // null for a chunk read while unloaded
+        private final LiquidSpreadSearch<BlockPos> search;
+        private boolean stale;
+
+        SpreadMemo(final World world) {
+            this.world = world;
+            this.search = new LiquidSpreadSearch<BlockPos>(new LiquidSpreadSearch.Terrain<BlockPos>() {
+                @Override
+                public BlockPos neighbour(BlockPos blockpos, int side) {
+                    return blockpos.a(sides[side]);
+                }
 
-                    if (i0 < 4) {
-                        int i2 = this.a(world, blockpos1, i0 + 1, enumfacing1.d());
+                @Override
+                public boolean isOpen(BlockPos blockpos) {
+                    SpreadMemo.this.note(blockpos);
+                    IBlockState iblockstate = world.p(blockpos);
 
-                        if (i2 < i1) {
-                            i1 = i2;
-                        }
-                    }
+                    return !BlockDynamicLiquid.this.g(world, blockpos, iblockstate) && (iblockstate.c().r() != BlockDynamicLiquid.this.J || ((Integer)iblockstate.b(b)).intValue() > 0);
+                }
+
+                @Override
+                public boolean isDrop(BlockPos blockpos) {
+                    SpreadMemo.this.note(blockpos);
+                    return !BlockDynamicLiquid.this.g(world, blockpos.b(), null);
                 }
+            });
+        }
+
+        private void note(BlockPos blockpos) {
+            int i0 = blockpos.n() >> 4;
+            int i1 = blockpos.p() >> 4;
+            Long key = ChunkCoordIntPair.a(i0, i1);
+
+            if (!this.chunks.containsKey(key)) {
+                // Unloaded chunks read as air
+                this.chunks.put(key, this.world.e(new BlockPos(i0 << 4, 0, i1 << 4)) ? this.world.a(i0, i1) : null);
+                this.world.getBlockWatch().watch(i0, i1, this);
             }
         }
 
-        return i1;
+        @Override
+        public void blockChanged(BlockPos blockpos) {
+            // A cell reads its own block, and the block below it for whether it is a drop
+            if (!this.stale && (this.search.hasRead(blockpos) || this.search.hasRead(blockpos.a()))) {
+                this.stale = true;
+            }
+        }
+
+        boolean isCurrent() {
+            if (this.stale) {
+                return false;
+            }
+            for (Map.Entry<Long, Chunk> entry : this.chunks.entrySet()) {
+                Chunk chunk = entry.getValue();
+                long key = entry.getKey();
+
+                // An unloaded chunk is never loaded again as the same object
+                if (chunk == null ? this.world.e(new BlockPos((int)key << 4, 0, (int)(key >> 32) << 4)) : !chunk.o()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void release() {
+            for (long key : this.chunks.keySet()) {
+                this.world.getBlockWatch().unwatch((int)key, (int)(key >> 32), this);
+            }
+        }
     }
 
     private Set e(World world, BlockPos blockpos) {
@@ -212,7 +300,7 @@ public class BlockDynamicLiquid extends BlockLiquid {
                 int i1;
 
                 if (this.g(world, blockpos1.b(), world.p(blockpos1.b()))) {
-                    i1 = this.a(world, blockpos1, 1, enumfacing.d());
+                    i1 = this.f(world, blockpos).search(blockpos1, 1, (side(enumfacing) + 2) & 3); // CanaryMod: memoized search
                 }
                 else {
                     i1 = 0;
@@ -232,6 +320,15 @@ public class BlockDynamicLiquid extends BlockLiquid {
         return enumset;
     }
 
+    private static int side(EnumFacing enumfacing) {
+        for (int i0 = 0; i0 < sides.length; ++i0) {
+            if (sides[i0] == enumfacing) {
+                return i0;
+            }
+        }
+        return -1;
+    }
+
     private boolean g(World world, BlockPos blockpos, IBlockState iblockstate) {
         Block block = world.p(blockpos).c();
 
@@ -261,7 +358,10 @@ public class BlockDynamicLiquid extends BlockLiquid {
         Material material = iblockstate.c().r();
         boolean ret = material != this.J && material != Material.i && !this.g(world, blockpos, iblockstate);
 
-        // CanaryMod: LiquidDestroy
+        // CanaryMod: LiquidDestroy, skipped if no plugin listens for it
+        if (!CanaryHookExecutor.hasListeners(LiquidDestroyHook.class)) {
+            return ret;
+        }
         CanaryBlock dest = CanaryBlock.getPooledBlock(iblockstate, blockpos, world);
         BlockType liquid = this.J == Material.i ? BlockType.LavaFlowing : BlockType.WaterFlowing;
         LiquidDestroyHook hook = (LiquidDestroyHook)new LiquidDestroyHook(liquid, dest).call();
@@ -1,8 +1,7 @@
 package net.minecraft.block;
 
-import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 import net.canarymod.api.world.blocks.CanaryBlock;
+import net.canarymod.api.world.blocks.RedstonePowerSolver;
 import net.canarymod.hook.world.RedstoneChangeHook;
 import net.minecraft.block.material.Material;
 import net.minecraft.block.properties.IProperty;
@@ -21,8 +20,13 @@ import net.minecraft.world.IBlockAccess;
 import net.minecraft.world.World;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 
@@ -34,7 +38,6 @@ public class BlockRedstoneWire extends Block {
     public static final PropertyEnum N = PropertyEnum.a("west", BlockRedstoneWire.EnumAttachPosition.class);
     public static final PropertyInteger O = PropertyInteger.a("power", 0, 15);
     private boolean P = true;
-    private final Set Q = Sets.newHashSet();
 
     public BlockRedstoneWire() {
         super(Material.q);
@@ -80,98 +83,52 @@ public class BlockRedstoneWire extends Block {
         return World.a((IBlockAccess)world, blockpos.b()) || world.p(blockpos.b()).c() == Blocks.aX;
     }
 
-    private IBlockState e(World world, BlockPos blockpos, IBlockState iblockstate) {
-        iblockstate = this.a(world, blockpos, blockpos, iblockstate);
-        ArrayList arraylist = Lists.newArrayList(this.Q);
-
-        this.Q.clear();
-        Iterator iterator = arraylist.iterator();
-
-        while (iterator.hasNext()) {
-            BlockPos blockpos1 = (BlockPos)iterator.next();
-
-            world.c(blockpos1, (Block)this);
-        }
-
-        return iblockstate;
-    }
-
-    private IBlockState a(World world, BlockPos blockpos, BlockPos blockpos1, IBlockState iblockstate) {
-        IBlockState iblockstate1 = iblockstate;
-        int i0 = ((Integer)iblockstate.b(O)).intValue();
-        byte b0 = 0;
-        int i1 = this.a(world, blockpos1, b0);
-
-        this.P = false;
-        int i2 = world.A(blockpos);
-
-        this.P = true;
-        if (i2 > 0 && i2 > i1 - 1) {
-            i1 = i2;
-        }
-
-        int i3 = 0;
-        Iterator iterator = EnumFacing.Plane.HORIZONTAL.iterator();
-
-        while (iterator.hasNext()) {
-            EnumFacing enumfacing = (EnumFacing)iterator.next();
-            BlockPos blockpos2 = blockpos.a(enumfacing);
-            boolean flag0 = blockpos2.n() != blockpos1.n() || blockpos2.p() != blockpos1.p();
-
-            if (flag0) {
-                i3 = this.a(world, blockpos2, i3);
+    private IBlockState e(final World world, BlockPos blockpos, IBlockState iblockstate) {
+        // CanaryMod: solve the affected wire network in one pass instead of stepping each wire down a level at a time
+        // RedstoneChange is called for every wire whose power would change before any is set,
+        // a cancelled wire keeps its power and the network is solved again without power passing it
+        RedstonePowerSolver<BlockPos> solver = RedstonePowerSolver.solve(new WireNetwork(world), Collections.singleton(blockpos), 15, new RedstonePowerSolver.Veto<BlockPos>() {
+            @Override
+            public boolean allow(BlockPos blockpos1, int from, int to) {
+                return !new RedstoneChangeHook(CanaryBlock.getPooledBlock(world.p(blockpos1), blockpos1, world), from, to).call().isCanceled();
             }
+        });
+        List<BlockPos> changed = new ArrayList<BlockPos>();
 
-            if (world.p(blockpos2).c().t() && !world.p(blockpos.a()).c().t()) {
-                if (flag0 && blockpos.o() >= blockpos1.o()) {
-                    i3 = this.a(world, blockpos2.a(), i3);
-                }
-            }
-            else if (!world.p(blockpos2).c().t() && flag0 && blockpos.o() <= blockpos1.o()) {
-                i3 = this.a(world, blockpos2.b(), i3);
-            }
-        }
+        for (Map.Entry<BlockPos, Integer> entry : solver.getPower().entrySet()) {
+            BlockPos blockpos1 = entry.getKey();
+            IBlockState iblockstate1 = world.p(blockpos1);
+            int i0 = ((Integer)iblockstate1.b(O)).intValue();
+            int i1 = entry.getValue();
 
-        if (i3 > i1) {
-            i1 = i3 - 1;
-        }
-        else if (i1 > 0) {
-            --i1;
-        }
-        else {
-            i1 = 0;
+            if (i0 == i1) {
+                continue;
+            }
+            world.a(blockpos1, iblockstate1.a(O, Integer.valueOf(i1)), 2);
+            changed.add(blockpos1);
         }
 
-        if (i2 > i1 - 1) {
-            i1 = i2;
-        }
+        // Everything within two blocks of a changed wire is notified once.
+        // Wires of the solved region already carry their final power and are left out.
+        Set<BlockPos> notified = new LinkedHashSet<BlockPos>();
+        EnumFacing[] aenumfacing = EnumFacing.values();
 
-        // CanaryMod: RedstoneChange
-        if (i0 != i1) {
-            if (new RedstoneChangeHook(CanaryBlock.getPooledBlock(iblockstate, blockpos, world), i0, i1).call().isCanceled()) {
-                return iblockstate;
+        for (BlockPos blockpos1 : changed) {
+            for (EnumFacing enumfacing : aenumfacing) {
+                notified.add(blockpos1.a(enumfacing));
+                for (EnumFacing enumfacing1 : aenumfacing) {
+                    notified.add(blockpos1.a(enumfacing).a(enumfacing1));
+                }
             }
         }
-        //
-
-        if (i0 != i1) {
-            iblockstate = iblockstate.a(O, Integer.valueOf(i1));
-            if (world.p(blockpos) == iblockstate1) {
-                world.a(blockpos, iblockstate, 2);
-            }
-
-            this.Q.add(blockpos);
-            EnumFacing[] aenumfacing = EnumFacing.values();
-            int i4 = aenumfacing.length;
-
-            for (int i5 = 0; i5 < i4; ++i5) {
-                EnumFacing enumfacing1 = aenumfacing[i5];
-
-                this.Q.add(blockpos.a(enumfacing1));
+        for (BlockPos blockpos1 : notified) {
+            if (!solver.getRegion().contains(blockpos1)) {
+                world.d(blockpos1, (Block)this);
             }
         }
 
-        return iblockstate;
+        IBlockState iblockstate2 = world.p(blockpos);
+        return iblockstate2.c() == this ? iblockstate2 : iblockstate;
     }
 
     private void d(World world, BlockPos blockpos) {
@@ -267,17 +224,6 @@ public class BlockRedstoneWire extends Block {
         }
     }
 
-    private int a(World world, BlockPos blockpos, int i0) {
-        if (world.p(blockpos).c() != this) {
-            return i0;
-        }
-        else {
-            int i1 = ((Integer)world.p(blockpos).b(O)).intValue();
-
-            return i1 > i0 ? i1 : i0;
-        }
-    }
-
     public void a(World world, BlockPos blockpos, IBlockState iblockstate, Block block) {
         if (!world.D) {
             if (this.c(world, blockpos)) {
@@ -386,6 +332,86 @@ public class BlockRedstoneWire extends Block {
         return new BlockState(this, new IProperty[]{ a, b, M, N, O });
     }
 
+    // CanaryMod start: the world's wires as seen by the power solver
+    private final class WireNetwork implements RedstonePowerSolver.Network<BlockPos> {
+        private final World world;
+
+        WireNetwork(World world) {
+            this.world = world;
+        }
+
+        @Override
+        public boolean isWire(BlockPos blockpos) {
+            return world.p(blockpos).c() == BlockRedstoneWire.this;
+        }
+
+        @Override
+        public Collection<BlockPos> getLinked(BlockPos blockpos) {
+            List<BlockPos> linked = new ArrayList<BlockPos>(4);
+            Iterator iterator = EnumFacing.Plane.HORIZONTAL.iterator();
+
+            while (iterator.hasNext()) {
+                BlockPos blockpos1 = blockpos.a((EnumFacing)iterator.next());
+
+                if (this.isWire(blockpos1)) {
+                    linked.add(blockpos1);
+                }
+                if (this.isWire(blockpos1.a())) {
+                    linked.add(blockpos1.a());
+                }
+                if (this.isWire(blockpos1.b())) {
+                    linked.add(blockpos1.b());
+                }
+            }
+            return linked;
+        }
+
+        @Override
+        public Collection<BlockPos> getInputs(BlockPos blockpos) {
+            // The neighbours the stepwise update reads from
+            List<BlockPos> inputs = new ArrayList<BlockPos>(4);
+            boolean flag0 = world.p(blockpos.a()).c().t();
+            Iterator iterator = EnumFacing.Plane.HORIZONTAL.iterator();
+
+            while (iterator.hasNext()) {
+                BlockPos blockpos1 = blockpos.a((EnumFacing)iterator.next());
+                boolean flag1 = world.p(blockpos1).c().t();
+
+                if (this.isWire(blockpos1)) {
+                    inputs.add(blockpos1);
+                }
+                if (flag1 && !flag0) {
+                    if (this.isWire(blockpos1.a())) {
+                        inputs.add(blockpos1.a());
+                    }
+                }
+                else if (!flag1 && this.isWire(blockpos1.b())) {
+                    inputs.add(blockpos1.b());
+                }
+            }
+            return inputs;
+        }
+
+        @Override
+        public int getExternalPower(BlockPos blockpos) {
+            BlockRedstoneWire.this.P = false;
+            try {
+                return world.A(blockpos);
+            }
+            finally {
+                BlockRedstoneWire.this.P = true;
+            }
+        }
+
+        @Override
+        public int getPower(BlockPos blockpos) {
+            IBlockState iblockstate = world.p(blockpos);
+
+            return iblockstate.c() == BlockRedstoneWire.this ? ((Integer)iblockstate.b(O)).intValue() : 0;
+        }
+    }
+    // CanaryMod end
+
     public static enum EnumAttachPosition implements IStringSerializable { // CanaryMod: package private => public
 
         UP("UP", 0, "up"),
@@ -1,6 +1,8 @@
 package net.minecraft.command.server;
 
 import net.canarymod.Canary;
+import net.canarymod.api.CanaryServer;
+import net.canarymod.api.ServerConfigSnapshot;
 import net.canarymod.api.world.CanaryWorld;
 import net.canarymod.config.Configuration;
 import net.canarymod.hook.command.CommandBlockCommandHook;
@@ -19,6 +21,8 @@ import net.minecraft.world.World;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
 
 public abstract class CommandBlockLogic implements ICommandSender {
@@ -31,6 +35,13 @@ public abstract class CommandBlockLogic implements ICommandSender {
     private String f = "@";
     private final CommandResultStats g = new CommandResultStats();
 
+    // CanaryMod: the command split up once per command text, and the time command blocks took per world this tick
+    private static final Map<World, long[]> spent = new WeakHashMap<World, long[]>();
+    private String parsed;
+    private String[] args;
+    private String permission;
+    //
+
     public int j() {
         return this.b;
     }
@@ -92,17 +103,42 @@ public abstract class CommandBlockLogic implements ICommandSender {
         if (minecraftserver != null && minecraftserver.N() && minecraftserver.aj()) {
             ICommandManager icommandmanager = minecraftserver.O();
 
+            // CanaryMod: leave the rest of this world's command blocks for the next tick once their time is used up
+            long[] budget = null;
+            long budgetNanos = ServerConfigSnapshot.get().commandBlockBudgetNanos;
+            if (budgetNanos > 0) {
+                budget = spent.get(world);
+                if (budget == null) {
+                    budget = new long[]{ -1L, 0L };
+                    spent.put(world, budget);
+                }
+                if (budget[0] != world.K()) {
+                    budget[0] = world.K();
+                    budget[1] = 0L;
+                }
+                else if (budget[1] >= budgetNanos) {
+                    this.deferExecution(world);
+                    return;
+                }
+            }
+            long started = System.nanoTime();
+            //
             try {
                 // CanaryMod: CommandBlockCommand
-                // NOTE: in CanaryServer is, again, a CommandHook called. Might wanna not call one of those
-                CommandBlockCommandHook hook = new CommandBlockCommandHook(getReference(), this.e.split(" "));
+                if (!this.e.equals(this.parsed)) {
+                    this.parsed = this.e;
+                    this.args = this.e.split(" ");
+                    this.permission = "canary.command.".concat(this.args[0].replaceFirst("/", ""));
+                }
+                CommandBlockCommandHook hook = new CommandBlockCommandHook(getReference(), this.args.clone());
                 hook.call();
 
-                if (!hook.isCanceled() && (Configuration.getServerConfig().isCommandBlockOpped() || this.getReference().hasPermission("canary.command.".concat(this.e.split(" ")[0].replaceFirst("/", ""))))) {
+                if (!hook.isCanceled() && (Configuration.getServerConfig().isCommandBlockOpped() || this.getReference().hasPermission(this.permission))) {
                     this.b = icommandmanager.a(this, this.e);
                     if (this.b == 0) {
                         // Means in NMS there was nothing processing this command, we shall try canary commands now
-                        Canary.getServer().consoleCommand(this.e, this.getReference());
+                        // The CommandBlockCommandHook above already covered it, so no second hook is called for it
+                        ((CanaryServer) Canary.getServer()).commandBlockCommand(this.args.clone(), this.getReference());
                         // NOTE: the successCount is not updated on purpose as this is something inherent to command block logic specifically.
                     }
                 }
@@ -139,12 +175,27 @@ public abstract class CommandBlockLogic implements ICommandSender {
                                      );
                 throw new ReportedException(crashreport);
             }
+            finally {
+                if (budget != null) {
+                    budget[1] += System.nanoTime() - started; // CanaryMod
+                }
+            }
         }
         else {
             this.b = 0;
         }
     }
 
+    /**
+     * CanaryMod: called instead of running the command when command blocks used up their time this tick.
+     * Blocks run again next tick, other command blocks simply wait for their next trigger.
+     *
+     * @param world
+     *         the world the command block is in
+     */
+    protected void deferExecution(World world) {
+    }
+
     public String d_() {
         return this.f;
     }
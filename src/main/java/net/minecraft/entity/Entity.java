@@ -9,7 +9,6 @@ import net.canarymod.api.entity.vehicle.Vehicle;
 import net.canarymod.api.world.CanaryWorld;
 import net.canarymod.api.world.position.Location;
 import net.canarymod.api.world.position.Vector3D;
-import net.canarymod.config.Configuration;
 import net.canarymod.hook.CancelableHook;
 import net.canarymod.hook.entity.DamageHook;
 import net.canarymod.hook.entity.DimensionSwitchHook;
@@ -251,7 +250,7 @@ public abstract class Entity implements ICommandSender {
 
             if (this.ak) {
                 // CanaryMod moved allow-nether to per-world config
-                if (Configuration.getWorldConfig(getCanaryWorld().getFqName()).isNetherAllowed()) {
+                if (getCanaryWorld().getConfigSnapshot().netherAllowed) {
                     if (this.m == null && this.al++ >= i0) {
                         this.al = i0;
                         this.aj = this.ar();
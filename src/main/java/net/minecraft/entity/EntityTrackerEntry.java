@@ -24,6 +24,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.google.common.collect.Sets;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -58,6 +59,12 @@ public class EntityTrackerEntry {
     public Set o = Sets.newHashSet();
 
     private CanaryEntityTrackerEntry canaryEntry;
+    private boolean mapUpdateDue; // CanaryMod: an item frame map update was held back by a player's budget
+    // CanaryMod: the packets of one tracker tick are collected and sent together
+    private boolean collecting;
+    private final List<Packet> tickPackets = new ArrayList<Packet>(4);
+    private final List<Packet> selfPackets = new ArrayList<Packet>(2);
+    //
 
     public EntityTrackerEntry(Entity entity, int i0, int i1, boolean flag0) {
         this.a = entity;
@@ -83,144 +90,189 @@ public class EntityTrackerEntry {
     }
 
     public void a(List list) {
-        this.n = false;
-        if (!this.t || this.a.e(this.q, this.r, this.s) > 16.0D) {
-            this.q = this.a.s;
-            this.r = this.a.t;
-            this.s = this.a.u;
-            this.t = true;
-            this.n = true;
-            this.b(list);
-        }
+        this.collecting = true; // CanaryMod: packets of the tick are collected and sent together
+        try {
+            this.n = false;
+            if (!this.t || this.a.e(this.q, this.r, this.s) > 16.0D) {
+                this.q = this.a.s;
+                this.r = this.a.t;
+                this.s = this.a.u;
+                this.t = true;
+                this.n = true;
+                this.b(list);
+            }
 
-        if (this.w != this.a.m || this.a.m != null && this.m % 60 == 0) {
-            this.w = this.a.m;
-            this.a((Packet) (new S1BPacketEntityAttach(0, this.a, this.a.m)));
-        }
+            if (this.w != this.a.m || this.a.m != null && this.m % 60 == 0) {
+                this.w = this.a.m;
+                this.a((Packet) (new S1BPacketEntityAttach(0, this.a, this.a.m)));
+            }
 
-        if (this.a instanceof EntityItemFrame && this.m % 10 == 0) {
-            EntityItemFrame entityitemframe = (EntityItemFrame) this.a;
-            ItemStack itemstack = entityitemframe.o();
+            // CanaryMod: frames take turns by entity id instead of all updating on the same tick, and updates
+            // held back by a player's map update budget are retried every tick until they went out
+            if (this.a instanceof EntityItemFrame && (this.mapUpdateDue || (this.m + this.a.F()) % 10 == 0)) {
+                EntityItemFrame entityitemframe = (EntityItemFrame) this.a;
+                ItemStack itemstack = entityitemframe.o();
 
-            if (itemstack != null && itemstack.b() instanceof ItemMap) {
-                MapData mapdata = Items.bd.a(itemstack, this.a.o);
-                Iterator iterator = list.iterator();
+                this.mapUpdateDue = false;
+                if (itemstack != null && itemstack.b() instanceof ItemMap) {
+                    MapData mapdata = Items.bd.a(itemstack, this.a.o);
+                    Iterator iterator = list.iterator();
 
-                while (iterator.hasNext()) {
-                    EntityPlayer entityplayer = (EntityPlayer) iterator.next();
-                    EntityPlayerMP entityplayermp = (EntityPlayerMP) entityplayer;
+                    while (iterator.hasNext()) {
+                        EntityPlayer entityplayer = (EntityPlayer) iterator.next();
+                        EntityPlayerMP entityplayermp = (EntityPlayerMP) entityplayer;
 
-                    mapdata.a(entityplayermp, itemstack);
-                    Packet packet = Items.bd.c(itemstack, this.a.o, entityplayermp);
+                        if (!entityplayermp.hasMapUpdateBudget()) {
+                            this.mapUpdateDue = true;
+                            continue;
+                        }
+                        mapdata.a(entityplayermp, itemstack);
+                        Packet packet = Items.bd.c(itemstack, this.a.o, entityplayermp);
 
-                    if (packet != null) {
-                        entityplayermp.a.a(packet);
+                        if (packet != null) {
+                            entityplayermp.a.a(packet);
+                            entityplayermp.useMapUpdateBudget();
+                        }
                     }
                 }
+                //
+
+                this.b();
             }
 
-            this.b();
-        }
+            if (this.m % this.c == 0 || this.a.ai || this.a.H().a()) {
+                int i0;
+                int i1;
+
+                if (this.a.m == null) {
+                    ++this.v;
+                    i0 = MathHelper.c(this.a.s * 32.0D);
+                    i1 = MathHelper.c(this.a.t * 32.0D);
+                    int i2 = MathHelper.c(this.a.u * 32.0D);
+                    int i3 = MathHelper.d(this.a.y * 256.0F / 360.0F);
+                    int i4 = MathHelper.d(this.a.z * 256.0F / 360.0F);
+                    int i5 = i0 - this.d;
+                    int i6 = i1 - this.e;
+                    int i7 = i2 - this.f;
+                    Object object = null;
+                    boolean flag0 = Math.abs(i5) >= 4 || Math.abs(i6) >= 4 || Math.abs(i7) >= 4 || this.m % 60 == 0;
+                    boolean flag1 = Math.abs(i3 - this.g) >= 4 || Math.abs(i4 - this.h) >= 4;
+
+                    if (this.m > 0 || this.a instanceof EntityArrow) {
+                        if (i5 >= -128 && i5 < 128 && i6 >= -128 && i6 < 128 && i7 >= -128 && i7 < 128 && this.v <= 400 && !this.x && this.y == this.a.C) {
+                            if (flag0 && flag1) {
+                                object = new S14PacketEntity.S17PacketEntityLookMove(this.a.F(), (byte) i5, (byte) i6, (byte) i7, (byte) i3, (byte) i4, this.a.C);
+                            } else if (flag0) {
+                                object = new S14PacketEntity.S15PacketEntityRelMove(this.a.F(), (byte) i5, (byte) i6, (byte) i7, this.a.C);
+                            } else if (flag1) {
+                                object = new S14PacketEntity.S16PacketEntityLook(this.a.F(), (byte) i3, (byte) i4, this.a.C);
+                            }
+                        } else {
+                            this.y = this.a.C;
+                            this.v = 0;
+                            object = new S18PacketEntityTeleport(this.a.F(), i0, i1, i2, (byte) i3, (byte) i4, this.a.C);
+                        }
+                    }
 
-        if (this.m % this.c == 0 || this.a.ai || this.a.H().a()) {
-            int i0;
-            int i1;
-
-            if (this.a.m == null) {
-                ++this.v;
-                i0 = MathHelper.c(this.a.s * 32.0D);
-                i1 = MathHelper.c(this.a.t * 32.0D);
-                int i2 = MathHelper.c(this.a.u * 32.0D);
-                int i3 = MathHelper.d(this.a.y * 256.0F / 360.0F);
-                int i4 = MathHelper.d(this.a.z * 256.0F / 360.0F);
-                int i5 = i0 - this.d;
-                int i6 = i1 - this.e;
-                int i7 = i2 - this.f;
-                Object object = null;
-                boolean flag0 = Math.abs(i5) >= 4 || Math.abs(i6) >= 4 || Math.abs(i7) >= 4 || this.m % 60 == 0;
-                boolean flag1 = Math.abs(i3 - this.g) >= 4 || Math.abs(i4 - this.h) >= 4;
-
-                if (this.m > 0 || this.a instanceof EntityArrow) {
-                    if (i5 >= -128 && i5 < 128 && i6 >= -128 && i6 < 128 && i7 >= -128 && i7 < 128 && this.v <= 400 && !this.x && this.y == this.a.C) {
-                        if (flag0 && flag1) {
-                            object = new S14PacketEntity.S17PacketEntityLookMove(this.a.F(), (byte) i5, (byte) i6, (byte) i7, (byte) i3, (byte) i4, this.a.C);
-                        } else if (flag0) {
-                            object = new S14PacketEntity.S15PacketEntityRelMove(this.a.F(), (byte) i5, (byte) i6, (byte) i7, this.a.C);
-                        } else if (flag1) {
-                            object = new S14PacketEntity.S16PacketEntityLook(this.a.F(), (byte) i3, (byte) i4, this.a.C);
+                    if (this.u) {
+                        double d0 = this.a.v - this.j;
+                        double d1 = this.a.w - this.k;
+                        double d2 = this.a.x - this.l;
+                        double d3 = 0.02D;
+                        double d4 = d0 * d0 + d1 * d1 + d2 * d2;
+
+                        if (d4 > d3 * d3 || d4 > 0.0D && this.a.v == 0.0D && this.a.w == 0.0D && this.a.x == 0.0D) {
+                            this.j = this.a.v;
+                            this.k = this.a.w;
+                            this.l = this.a.x;
+                            this.a((Packet) (new S12PacketEntityVelocity(this.a.F(), this.j, this.k, this.l)));
                         }
-                    } else {
-                        this.y = this.a.C;
-                        this.v = 0;
-                        object = new S18PacketEntityTeleport(this.a.F(), i0, i1, i2, (byte) i3, (byte) i4, this.a.C);
                     }
-                }
 
-                if (this.u) {
-                    double d0 = this.a.v - this.j;
-                    double d1 = this.a.w - this.k;
-                    double d2 = this.a.x - this.l;
-                    double d3 = 0.02D;
-                    double d4 = d0 * d0 + d1 * d1 + d2 * d2;
-
-                    if (d4 > d3 * d3 || d4 > 0.0D && this.a.v == 0.0D && this.a.w == 0.0D && this.a.x == 0.0D) {
-                        this.j = this.a.v;
-                        this.k = this.a.w;
-                        this.l = this.a.x;
-                        this.a((Packet) (new S12PacketEntityVelocity(this.a.F(), this.j, this.k, this.l)));
+                    if (object != null) {
+                        this.a((Packet) object);
                     }
-                }
 
-                if (object != null) {
-                    this.a((Packet) object);
-                }
+                    this.b();
+                    if (flag0) {
+                        this.d = i0;
+                        this.e = i1;
+                        this.f = i2;
+                    }
 
-                this.b();
-                if (flag0) {
-                    this.d = i0;
-                    this.e = i1;
-                    this.f = i2;
-                }
+                    if (flag1) {
+                        this.g = i3;
+                        this.h = i4;
+                    }
 
-                if (flag1) {
-                    this.g = i3;
-                    this.h = i4;
+                    this.x = false;
+                } else {
+                    i0 = MathHelper.d(this.a.y * 256.0F / 360.0F);
+                    i1 = MathHelper.d(this.a.z * 256.0F / 360.0F);
+                    boolean flag2 = Math.abs(i0 - this.g) >= 4 || Math.abs(i1 - this.h) >= 4;
+
+                    if (flag2) {
+                        this.a((Packet) (new S14PacketEntity.S16PacketEntityLook(this.a.F(), (byte) i0, (byte) i1, this.a.C)));
+                        this.g = i0;
+                        this.h = i1;
+                    }
+
+                    this.d = MathHelper.c(this.a.s * 32.0D);
+                    this.e = MathHelper.c(this.a.t * 32.0D);
+                    this.f = MathHelper.c(this.a.u * 32.0D);
+                    this.b();
+                    this.x = true;
                 }
 
-                this.x = false;
-            } else {
-                i0 = MathHelper.d(this.a.y * 256.0F / 360.0F);
-                i1 = MathHelper.d(this.a.z * 256.0F / 360.0F);
-                boolean flag2 = Math.abs(i0 - this.g) >= 4 || Math.abs(i1 - this.h) >= 4;
-
-                if (flag2) {
-                    this.a((Packet) (new S14PacketEntity.S16PacketEntityLook(this.a.F(), (byte) i0, (byte) i1, this.a.C)));
-                    this.g = i0;
-                    this.h = i1;
+                i0 = MathHelper.d(this.a.aD() * 256.0F / 360.0F);
+                if (Math.abs(i0 - this.i) >= 4) {
+                    this.a((Packet) (new S19PacketEntityHeadLook(this.a, (byte) i0)));
+                    this.i = i0;
                 }
 
-                this.d = MathHelper.c(this.a.s * 32.0D);
-                this.e = MathHelper.c(this.a.t * 32.0D);
-                this.f = MathHelper.c(this.a.u * 32.0D);
-                this.b();
-                this.x = true;
+                this.a.ai = false;
             }
 
-            i0 = MathHelper.d(this.a.aD() * 256.0F / 360.0F);
-            if (Math.abs(i0 - this.i) >= 4) {
-                this.a((Packet) (new S19PacketEntityHeadLook(this.a, (byte) i0)));
-                this.i = i0;
+            ++this.m;
+            if (this.a.G) {
+                this.b((Packet) (new S12PacketEntityVelocity(this.a)));
+                this.a.G = false;
             }
-
-            this.a.ai = false;
         }
+        finally {
+            // CanaryMod: send this tick's movement, velocity, head look, metadata and attribute packets, also if it failed
+            this.collecting = false;
+            this.sendTickPackets();
+        }
+    }
+
+    /**
+     * Sends the packets collected during a tracker tick, as one list shared by every tracking player
+     */
+    private void sendTickPackets() {
+        if (!this.tickPackets.isEmpty()) {
+            if (this.tickPackets.size() == 1) {
+                this.a(this.tickPackets.get(0));
+            }
+            else {
+                // A new list each tick, the network threads read it after this returns
+                List<Packet> packets = new ArrayList<Packet>(this.tickPackets);
+                Iterator iterator = this.o.iterator();
 
-        ++this.m;
-        if (this.a.G) {
-            this.b((Packet) (new S12PacketEntityVelocity(this.a)));
-            this.a.G = false;
+                while (iterator.hasNext()) {
+                    ((EntityPlayerMP) iterator.next()).a.a.sendAll(packets);
+                }
+            }
+            this.tickPackets.clear();
         }
+        if (!this.selfPackets.isEmpty()) {
+            EntityPlayerMP entityplayermp = (EntityPlayerMP) this.a;
 
+            for (int i0 = 0; i0 < this.selfPackets.size(); ++i0) {
+                entityplayermp.a.a(this.selfPackets.get(i0));
+            }
+            this.selfPackets.clear();
+        }
     }
 
     private void b() {
@@ -244,6 +296,10 @@ public class EntityTrackerEntry {
     }
 
     public void a(Packet packet) {
+        if (this.collecting) {
+            this.tickPackets.add(packet); // CanaryMod: sent at the end of the tick
+            return;
+        }
         Iterator iterator = this.o.iterator();
 
         while (iterator.hasNext()) {
@@ -257,7 +313,12 @@ public class EntityTrackerEntry {
     public void b(Packet packet) {
         this.a(packet);
         if (this.a instanceof EntityPlayerMP) {
-            ((EntityPlayerMP) this.a).a.a(packet);
+            if (this.collecting) {
+                this.selfPackets.add(packet); // CanaryMod: sent at the end of the tick
+            }
+            else {
+                ((EntityPlayerMP) this.a).a.a(packet);
+            }
         }
 
     }
@@ -5,6 +5,7 @@ import net.canarymod.api.entity.living.LivingBase;
 import net.canarymod.api.entity.vehicle.CanaryBoat;
 import net.canarymod.api.entity.vehicle.Vehicle;
 import net.canarymod.api.world.position.Vector3D;
+import net.canarymod.hook.CanaryHookExecutor;
 import net.canarymod.hook.CancelableHook;
 import net.canarymod.hook.entity.*;
 import net.minecraft.block.Block;
@@ -363,8 +364,7 @@ public class EntityBoat extends Entity {
 
                         if (entity != this.l && entity.ae() && entity instanceof EntityBoat) {
                             // CanaryMod: VehicleCollision
-                            VehicleCollisionHook vch = (VehicleCollisionHook) new VehicleCollisionHook((Vehicle) this.entity, entity.getCanaryEntity()).call();
-                            if (!vch.isCanceled()) {
+                            if (!CanaryHookExecutor.hasListeners(VehicleCollisionHook.class) || !new VehicleCollisionHook((Vehicle) this.entity, entity.getCanaryEntity()).call().isCanceled()) {
                                 entity.i(this);
                             }
                             //
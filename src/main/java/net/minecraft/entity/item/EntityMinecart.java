@@ -7,7 +7,7 @@ import net.canarymod.api.entity.living.EntityLiving;
 import net.canarymod.api.entity.vehicle.Minecart;
 import net.canarymod.api.entity.vehicle.Vehicle;
 import net.canarymod.api.world.position.Vector3D;
-import net.canarymod.config.Configuration;
+import net.canarymod.hook.CanaryHookExecutor;
 import net.canarymod.hook.entity.MinecartActivateHook;
 import net.canarymod.hook.entity.VehicleCollisionHook;
 import net.canarymod.hook.entity.VehicleDamageHook;
@@ -217,7 +217,7 @@ public abstract class EntityMinecart extends Entity implements IWorldNameable {
             i0 = this.L();
             if (this.ak) {
                 // CanaryMod moved allow-nether to per-world config
-                if (Configuration.getWorldConfig(getCanaryWorld().getFqName()).isNetherAllowed()) {
+                if (getCanaryWorld().getConfigSnapshot().netherAllowed) {
                     if (this.m == null && this.al++ >= i0) {
                         this.al = i0;
                         this.aj = this.ar();
@@ -724,7 +724,7 @@ public abstract class EntityMinecart extends Entity implements IWorldNameable {
                     if (entity instanceof EntityLivingBase && !(entity instanceof EntityPlayer) && !(entity instanceof EntityIronGolem) && this.s() == EntityMinecart.EnumMinecartType.RIDEABLE && this.v * this.v + this.x * this.x > 0.01D && this.l == null && entity.m == null) {
 
                         // CanaryMod: VehicleCollision
-                        if (new VehicleCollisionHook((Vehicle)this.entity, entity.getCanaryEntity()).call().isCanceled()) {
+                        if (CanaryHookExecutor.hasListeners(VehicleCollisionHook.class) && new VehicleCollisionHook((Vehicle)this.entity, entity.getCanaryEntity()).call().isCanceled()) {
                             return;
                         }
                         //
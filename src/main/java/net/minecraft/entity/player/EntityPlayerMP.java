@@ -6,6 +6,7 @@ import com.mojang.authlib.GameProfile;
 import io.netty.buffer.Unpooled;
 import net.canarymod.Canary;
 import net.canarymod.api.CanaryNetServerHandler;
+import net.canarymod.api.ServerConfigSnapshot;
 import net.canarymod.api.chat.CanaryChatComponent;
 import net.canarymod.api.entity.living.animal.CanaryAnimal;
 import net.canarymod.api.entity.living.humanoid.CanaryPlayer;
@@ -14,6 +15,7 @@ import net.canarymod.api.inventory.CanaryBlockInventory;
 import net.canarymod.api.inventory.CanaryEntityInventory;
 import net.canarymod.api.inventory.Inventory;
 import net.canarymod.api.world.CanaryWorld;
+import net.canarymod.api.world.ChunkSendQueue;
 import net.canarymod.api.world.position.Location;
 import net.canarymod.config.Configuration;
 import net.canarymod.config.WorldConfiguration;
@@ -135,8 +137,10 @@ public class EntityPlayerMP extends EntityPlayer implements ICrafting {
     public final ItemInWorldManager c;
     public double d;
     public double e;
-    public final List f = Lists.newLinkedList();
+    public final ChunkSendQueue f = new ChunkSendQueue(this); // CanaryMod: distance ordered, constant time membership
     private final List bH = Collections.synchronizedList(Lists.newLinkedList()); // CanaryMod: concurrency correction
+    private long mapUpdateTick = -1L; // CanaryMod: the tick mapUpdatesLeft counts for
+    private int mapUpdatesLeft; // CanaryMod
     private final StatisticsFile bI;
     private float bJ = Float.MIN_VALUE;
     private float bK = -1.0E8F;
@@ -231,7 +235,7 @@ public class EntityPlayerMP extends EntityPlayer implements ICrafting {
         if (nbttagcompound.b("playerGameType", 99)) {
             // CanaryMod: Modify how game mode is set
             //if (MinecraftServer.I().ap()) {
-            if (Configuration.getWorldConfig(o.getCanaryWorld().getFqName()).forceDefaultGamemode()) {
+            if (o.getCanaryWorld().getConfigSnapshot().forceDefaultGamemode) {
                 //this.c.a(MinecraftServer.I().i());
                 this.c.a(o.P().r());
             }
@@ -303,17 +307,31 @@ public class EntityPlayerMP extends EntityPlayer implements ICrafting {
             ArrayList arraylist = Lists.newArrayList();
             Iterator iterator1 = this.f.iterator();
             ArrayList arraylist1 = Lists.newArrayList();
+            ArrayList arraylist2 = Lists.newArrayList(); // CanaryMod: cached chunk packets
+            ArrayList arraylist3 = Lists.newArrayList(); // CanaryMod: every chunk sent this tick
+            int budget = this.f.getSendBudget(); // CanaryMod: adapt to the connection's backlog instead of a fixed 10
 
             Chunk chunk;
 
-            while (iterator1.hasNext() && arraylist.size() < 10) {
+            while (iterator1.hasNext() && arraylist3.size() < budget) {
                 ChunkCoordIntPair chunkcoordintpair = (ChunkCoordIntPair)iterator1.next();
 
                 if (chunkcoordintpair != null) {
                     if (this.o.e(new BlockPos(chunkcoordintpair.a << 4, 0, chunkcoordintpair.b << 4))) {
                         chunk = this.o.a(chunkcoordintpair.a, chunkcoordintpair.b);
                         if (chunk.i()) {
-                            arraylist.add(chunk);
+                            // CanaryMod: send an already built payload if one is cached, otherwise bulk it up as usual
+                            this.o.getLightingQueue().resolve(chunk.a, chunk.b); // light must be final before it is sent
+                            Packet cached = ((WorldServer)this.o).getChunkPayloadCache().get(chunk);
+
+                            if (cached != null) {
+                                arraylist2.add(cached);
+                            }
+                            else {
+                                arraylist.add(chunk);
+                            }
+                            arraylist3.add(chunk);
+                            //
                             arraylist1.addAll(((WorldServer)this.o).a(chunkcoordintpair.a * 16, 0, chunkcoordintpair.b * 16, chunkcoordintpair.a * 16 + 16, 256, chunkcoordintpair.b * 16 + 16));
                             iterator1.remove();
                         }
@@ -324,14 +342,18 @@ public class EntityPlayerMP extends EntityPlayer implements ICrafting {
                 }
             }
 
-            if (!arraylist.isEmpty()) {
+            if (!arraylist3.isEmpty()) {
                 if (arraylist.size() == 1) {
                     this.a.a((Packet)(new S21PacketChunkData((Chunk)arraylist.get(0), true, '\uffff')));
                 }
-                else {
+                else if (!arraylist.isEmpty()) {
                     this.a.a((Packet)(new S26PacketMapChunkBulk(arraylist)));
                 }
 
+                for (int i0 = 0; i0 < arraylist2.size(); ++i0) {
+                    this.a.a((Packet)arraylist2.get(i0));
+                }
+
                 Iterator iterator2 = arraylist1.iterator();
 
                 while (iterator2.hasNext()) {
@@ -340,7 +362,7 @@ public class EntityPlayerMP extends EntityPlayer implements ICrafting {
                     this.a(tileentity);
                 }
 
-                iterator2 = arraylist.iterator();
+                iterator2 = arraylist3.iterator();
 
                 while (iterator2.hasNext()) {
                     chunk = (Chunk)iterator2.next();
@@ -384,7 +406,7 @@ public class EntityPlayerMP extends EntityPlayer implements ICrafting {
             // CanaryMod: HealthChange / HealthEnabled
             if (this.bm() != this.bK || this.bL != this.bj.a() || this.bj.e() == 0.0F != this.bM) {
                 // updates your health when it is changed.
-                if (!Configuration.getWorldConfig(getCanaryWorld().getFqName()).isHealthEnabled()) {
+                if (!getCanaryWorld().getConfigSnapshot().healthEnabled) {
                     super.h(this.bt());
                     this.I = false;
                 }
@@ -417,7 +439,7 @@ public class EntityPlayerMP extends EntityPlayer implements ICrafting {
             }
 
             // CanaryMod: ExperienceHook / ExperienceEnabled
-            if (!Configuration.getWorldConfig(getCanaryWorld().getFqName()).isExperienceEnabled()) {
+            if (!getCanaryWorld().getConfigSnapshot().experienceEnabled) {
                 this.bA = 0;
                 this.bN = 0;
             }
@@ -485,7 +507,7 @@ public class EntityPlayerMP extends EntityPlayer implements ICrafting {
         // CanaryMod: Start: PlayerDeathHook
         PlayerDeathHook hook = (PlayerDeathHook)new PlayerDeathHook(getPlayer(), damagesource.getCanaryDamageSource(), this.br().b().getWrapper()).call();
         // Check Death Message enabled
-        if (Configuration.getServerConfig().isDeathMessageEnabled()) {
+        if (getCanaryWorld().getConfigSnapshot().deathMessageEnabled) {
             //if (this.o.Q().b("showDeathMessages")) {
             Team team = this.bN();
 
@@ -540,7 +562,7 @@ public class EntityPlayerMP extends EntityPlayer implements ICrafting {
         }
         else {
             // CanaryMod moved pvp to per-world config
-            boolean haspvp = Configuration.getWorldConfig(getCanaryWorld().getFqName()).isPvpEnabled();
+            boolean haspvp = getCanaryWorld().getConfigSnapshot().pvpEnabled;
             boolean flag0 = haspvp && this.b.ad() && this.cq() && "fall".equals(damagesource.p);
 
             if (!flag0 && this.bO > 0 && damagesource != DamageSource.j) {
@@ -570,7 +592,7 @@ public class EntityPlayerMP extends EntityPlayer implements ICrafting {
 
     public boolean a(EntityPlayer entityplayer) {
         // CanaryMod moved pvp to per-world config
-        boolean haspvp = Configuration.getWorldConfig(getCanaryWorld().getFqName()).isPvpEnabled();
+        boolean haspvp = getCanaryWorld().getConfigSnapshot().pvpEnabled;
         return haspvp && super.a(entityplayer);
     }
 
@@ -1151,6 +1173,32 @@ public class EntityPlayerMP extends EntityPlayer implements ICrafting {
         return this.bO;
     }
 
+    /**
+     * Checks whether another item frame map update may be sent to this player this tick,
+     * at most {@code map-updates-per-tick} are unless that is 0
+     *
+     * @return true if an update may be sent
+     */
+    public boolean hasMapUpdateBudget() {
+        int budget = ServerConfigSnapshot.get().mapUpdatesPerTick;
+
+        if (budget == 0) {
+            return true;
+        }
+        if (mapUpdateTick != this.o.K()) {
+            mapUpdateTick = this.o.K();
+            mapUpdatesLeft = budget;
+        }
+        return mapUpdatesLeft > 0;
+    }
+
+    /**
+     * Counts a sent item frame map update against this tick's budget
+     */
+    public void useMapUpdateBudget() {
+        --mapUpdatesLeft;
+    }
+
     /**
      * Get the CanaryEntity as CanaryPlayer
      *
@@ -59,7 +59,7 @@ public class ItemMap extends ItemMapBase {
 
     public void a(World world, Entity entity, MapData mapdata) {
         // CanaryMod: Check mapdata for mapUpdating and fix for multiworld causing overriding maps
-        if (!mapdata.mapUpdating || !mapdata.worldName.equals(world.getCanaryWorld().getFqName()) || mapdata.isBroken) {
+        if (!mapdata.mapUpdating || !mapdata.isMapWorld(world) || mapdata.isBroken) {
             return;
         }
         //
@@ -196,7 +196,7 @@ public class ItemMap extends ItemMapBase {
             MapData mapdata = this.a(itemstack, world);
 
             // CanaryMod: Check mapdata for mapUpdating and fix for multiworld causing overriding maps
-            if (!mapdata.mapUpdating || !mapdata.worldName.equals(world.getCanaryWorld().getFqName()) || mapdata.isBroken) {
+            if (!mapdata.mapUpdating || !mapdata.isMapWorld(world) || mapdata.isBroken) {
                 return;
             }
             //
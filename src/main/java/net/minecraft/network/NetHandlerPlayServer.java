@@ -411,13 +411,13 @@ public class NetHandlerPlayServer implements INetHandlerPlayServer, IUpdatePlaye
 
                 // CanaryMod: check on flying capability instead of mode
                 // moved allow-flight to per-world config
-                if (!Configuration.getWorldConfig(worldserver.getCanaryWorld().getFqName()).isFlightAllowed()) { // CanaryMod: Check if flight is allowed
+                if (!worldserver.getCanaryWorld().getConfigSnapshot().flightAllowed) { // CanaryMod: Check if flight is allowed
                     // CanaryMod:     on ground       |                isFlying                           |        ignorerestrictions         |      admin
                     if (!worldserver.c(axisalignedbb) && !this.b.getPlayer().getCapabilities().isFlying() && !(player.canIgnoreRestrictions() || player.isAdmin())) {
                         if (d18 >= -0.03125D) {
-                            if (this.g > Configuration.getServerConfig().getFlightDetectTicks()) {
+                            if (this.g > worldserver.getCanaryWorld().getConfigSnapshot().flightDetectTicks) {
                                 // CanaryMod: Configurable flight kicking
-                                if (Configuration.getServerConfig().isFlightKickEnabled()) {
+                                if (worldserver.getCanaryWorld().getConfigSnapshot().flightKickEnabled) {
                                     c.warn(this.b.d_() + " was kicked for floating too long!");
                                     this.c("Flying is not enabled on this server");
                                     this.g = 0; // Reset the counter
@@ -839,8 +839,8 @@ public class NetHandlerPlayServer implements INetHandlerPlayServer, IUpdatePlaye
         this.l += 20;
         // OP or Ignores restrictions
         boolean op = Canary.ops().isOpped(this.b.aJ().toString()), ignore = this.b.getPlayer().canIgnoreRestrictions();
-        String spamProLvl = Configuration.getServerConfig().getSpamProtectionLevel();
-        if (spamProLvl.toLowerCase().equals("all") || (spamProLvl.toLowerCase().equals("default") && !(op || ignore))) {
+        String spamProLvl = this.b.getCanaryWorld().getConfigSnapshot().spamProtectionLevel;
+        if (spamProLvl.equals("all") || (spamProLvl.equals("default") && !(op || ignore))) {
             if (this.l > 200) {
                 this.c("disconnect.spam");
                 return;
@@ -21,8 +21,10 @@ import org.apache.logging.log4j.MarkerManager;
 
 import javax.crypto.SecretKey;
 import java.net.SocketAddress;
+import java.util.List;
 import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class NetworkManager extends SimpleChannelInboundHandler {
     private static final Logger f = LogManager.getLogger();
@@ -56,6 +58,14 @@ public class NetworkManager extends SimpleChannelInboundHandler {
     public UUID spoofedUUID;
     public Property[] spoofedProfile;
     //CanaryMod End - Bungeecord support
+    // CanaryMod: outbound backlog tracking
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final ChannelFutureListener pendingWriteListener = new ChannelFutureListener() {
+        public void operationComplete(ChannelFuture channelfuture) {
+            pendingWrites.decrementAndGet();
+        }
+    };
+    //
     private INetHandler k;
     private IChatComponent l;
     private boolean m;
@@ -139,6 +149,8 @@ public class NetworkManager extends SimpleChannelInboundHandler {
             this.i.config().setAutoRead(false);
         }
 
+        this.pendingWrites.incrementAndGet(); // CanaryMod: counted until the write completes
+
         if (this.i.eventLoop().inEventLoop()) {
             if (enumconnectionstate != enumconnectionstate1) {
                 this.a(enumconnectionstate);
@@ -150,6 +162,7 @@ public class NetworkManager extends SimpleChannelInboundHandler {
                 channelfuture.addListeners(agenericfuturelistener);
             }
             channelfuture.addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+            channelfuture.addListener(this.pendingWriteListener); // CanaryMod
         }
         else {
             this.i.eventLoop().execute(new Runnable() {
@@ -164,12 +177,60 @@ public class NetworkManager extends SimpleChannelInboundHandler {
                                                    channelfuture1.addListeners(agenericfuturelistener);
                                                }
                                                channelfuture1.addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+                                               channelfuture1.addListener(NetworkManager.this.pendingWriteListener); // CanaryMod
                                            }
                                        }
                                       );
         }
     }
 
+    /* CanaryMod */
+    /**
+     * Sends packets in one hand-off to the network thread with a single flush.
+     * The list is only read, so one list may be given to many connections.
+     *
+     * @param packets
+     *         the packets, in the order to send them
+     */
+    public void sendAll(final List<Packet> packets) {
+        if (this.i == null || !this.i.isOpen() || this.i.attr(c).get() != EnumConnectionState.PLAY) {
+            for (int i0 = 0; i0 < packets.size(); ++i0) {
+                this.a(packets.get(i0));
+            }
+            return;
+        }
+        for (int i0 = 0; i0 < packets.size(); ++i0) {
+            if (EnumConnectionState.a(packets.get(i0)) != EnumConnectionState.PLAY) {
+                // Would switch the protocol, leave that to the usual path
+                for (int i1 = 0; i1 < packets.size(); ++i1) {
+                    this.a(packets.get(i1));
+                }
+                return;
+            }
+        }
+        this.m();
+        this.pendingWrites.addAndGet(packets.size());
+        Runnable write = new Runnable() {
+            public void run() {
+                for (int i0 = 0; i0 < packets.size(); ++i0) {
+                    ChannelFuture channelfuture = NetworkManager.this.i.write(packets.get(i0));
+
+                    channelfuture.addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+                    channelfuture.addListener(NetworkManager.this.pendingWriteListener);
+                }
+                NetworkManager.this.i.flush();
+            }
+        };
+
+        if (this.i.eventLoop().inEventLoop()) {
+            write.run();
+        }
+        else {
+            this.i.eventLoop().execute(write);
+        }
+    }
+    /* CanaryMod */
+
     private void m() {
         if (this.i != null && this.i.isOpen()) {
             while (!this.h.isEmpty()) {
@@ -269,6 +330,27 @@ public class NetworkManager extends SimpleChannelInboundHandler {
         }
     }
 
+    /* CanaryMod */
+    /**
+     * Gets the number of packets handed to this connection that have not been written out yet.
+     * This includes packets still waiting to be encoded on the network thread.
+     *
+     * @return the outbound backlog in packets
+     */
+    public int getPendingWrites() {
+        return this.pendingWrites.get();
+    }
+
+    /**
+     * Checks whether the underlying channel currently accepts writes without buffering past its high water mark
+     *
+     * @return true if writable; false if not or not connected
+     */
+    public boolean isWritable() {
+        return this.i != null && this.i.isWritable();
+    }
+    /* CanaryMod */
+
     protected void channelRead0(ChannelHandlerContext channelhandlercontext, Object object) {
         this.channelRead0(channelhandlercontext, (Packet)object);
     }
@@ -1,6 +1,7 @@
 package net.minecraft.pathfinding;
 
 import net.canarymod.api.CanaryPathFinder;
+import net.canarymod.api.PathCache;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityLiving;
 import net.minecraft.entity.SharedMonsterAttributes;
@@ -26,6 +27,7 @@ public abstract class PathNavigate {
     private final PathFinder j;
 
     private CanaryPathFinder nav = new CanaryPathFinder(this); // CanaryMod: our var
+    private final PathCache paths = new PathCache(); // CanaryMod: last searches, reused while still valid
 
     public PathNavigate(EntityLiving entityliving, World world) {
         this.b = entityliving;
@@ -55,12 +57,18 @@ public abstract class PathNavigate {
         else {
             float f0 = this.i();
 
+            // CanaryMod: reuse the last search while nothing it depends on changed
+            if (this.paths.isKnown(PathCache.BLOCK, this.c, this.b, blockpos, f0)) {
+                return this.paths.getPath(PathCache.BLOCK);
+            }
+            //
             this.c.B.a("pathfind");
             BlockPos blockpos1 = new BlockPos(this.b);
             int i0 = (int) (f0 + 8.0F);
             ChunkCache chunkcache = new ChunkCache(this.c, blockpos1.a(-i0, -i0, -i0), blockpos1.a(i0, i0, i0), 0);
             PathEntity pathentity = this.j.a((IBlockAccess) chunkcache, (Entity) this.b, blockpos, f0);
 
+            this.paths.remember(PathCache.BLOCK, this.c, this.b, blockpos, f0, pathentity); // CanaryMod
             this.c.B.b();
             return pathentity;
         }
@@ -83,12 +91,20 @@ public abstract class PathNavigate {
         else {
             float f0 = this.i();
 
+            // CanaryMod: reuse the last search while nothing it depends on changed
+            BlockPos goal = new BlockPos(entity);
+
+            if (this.paths.isKnown(PathCache.ENTITY, this.c, this.b, goal, f0)) {
+                return this.paths.getPath(PathCache.ENTITY);
+            }
+            //
             this.c.B.a("pathfind");
             BlockPos blockpos = (new BlockPos(this.b)).a();
             int i0 = (int) (f0 + 16.0F);
             ChunkCache chunkcache = new ChunkCache(this.c, blockpos.a(-i0, -i0, -i0), blockpos.a(i0, i0, i0), 0);
             PathEntity pathentity = this.j.a((IBlockAccess) chunkcache, (Entity) this.b, entity, f0);
 
+            this.paths.remember(PathCache.ENTITY, this.c, this.b, goal, f0, pathentity); // CanaryMod
             this.c.B.b();
             return pathentity;
         }
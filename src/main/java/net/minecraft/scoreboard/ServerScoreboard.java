@@ -13,9 +13,13 @@ import net.minecraft.server.MinecraftServer;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 public class ServerScoreboard extends Scoreboard {
@@ -24,6 +28,10 @@ public class ServerScoreboard extends Scoreboard {
     private final Set b = Sets.newHashSet();
     private ScoreboardSaveData c;
 
+    // CanaryMod: score updates are journaled and sent once per tick, only the latest update per score goes out
+    private static final Set<ServerScoreboard> pendingBoards = Collections.newSetFromMap(new ConcurrentHashMap<ServerScoreboard, Boolean>());
+    private final Map<String, Object> pendingScores = new LinkedHashMap<String, Object>();
+
     public ServerScoreboard(MinecraftServer minecraftserver) {
         this.a = minecraftserver;
         scoreboard = new CanaryScoreboard(this, "scoreboard");
@@ -33,7 +41,7 @@ public class ServerScoreboard extends Scoreboard {
         super.a(score);
         // CanaryMod: Don't Check This
         //if (this.b.contains(score.d())) {
-        this.a.an().a((Packet) (new S3CPacketUpdateScore(score)));
+        this.queueScore(score.e() + '\u0000' + score.d().b(), score); // CanaryMod: journal instead of sending right away
         //}
         // CanaryMod: End
         this.b();
@@ -41,17 +49,18 @@ public class ServerScoreboard extends Scoreboard {
 
     public void a(String s0) {
         super.a(s0);
-        this.a.an().a((Packet) (new S3CPacketUpdateScore(s0)));
+        this.queueScore(s0 + '\u0000', new S3CPacketUpdateScore(s0)); // CanaryMod: journal instead of sending right away
         this.b();
     }
 
     public void a(String s0, ScoreObjective scoreobjective) {
         super.a(s0, scoreobjective);
-        this.a.an().a((Packet) (new S3CPacketUpdateScore(s0, scoreobjective)));
+        this.queueScore(s0 + '\u0000' + scoreobjective.b(), new S3CPacketUpdateScore(s0, scoreobjective)); // CanaryMod: journal instead of sending right away
         this.b();
     }
 
     public void a(int i0, ScoreObjective scoreobjective) {
+        this.flushScores(); // CanaryMod: scores go out before the objectives they belong to change
         ScoreObjective scoreobjective1 = this.a(i0);
 
         super.a(i0, scoreobjective);
@@ -101,6 +110,7 @@ public class ServerScoreboard extends Scoreboard {
     }
 
     public void b(ScoreObjective scoreobjective) {
+        this.flushScores(); // CanaryMod
         super.b(scoreobjective);
         // CanaryMod: Don't Check This
         //if (this.b.contains(scoreobjective)) {
@@ -112,6 +122,7 @@ public class ServerScoreboard extends Scoreboard {
     }
 
     public void c(ScoreObjective scoreobjective) {
+        this.flushScores(); // CanaryMod
         super.c(scoreobjective);
         if (this.b.contains(scoreobjective)) {
             this.g(scoreobjective);
@@ -172,6 +183,7 @@ public class ServerScoreboard extends Scoreboard {
     }
 
     public void e(ScoreObjective scoreobjective) {
+        this.flushScores(); // CanaryMod
         List list = this.d(scoreobjective);
         Iterator iterator = this.a.an().e.iterator();
 
@@ -204,6 +216,7 @@ public class ServerScoreboard extends Scoreboard {
     }
 
     public void g(ScoreObjective scoreobjective) {
+        this.flushScores(); // CanaryMod
         List list = this.f(scoreobjective);
         Iterator iterator = this.a.an().e.iterator();
 
@@ -232,4 +245,61 @@ public class ServerScoreboard extends Scoreboard {
 
         return i0;
     }
+
+    /* CanaryMod */
+    private void queueScore(String key, Object update) {
+        synchronized (pendingScores) {
+            if (update instanceof S3CPacketUpdateScore && key.endsWith("\u0000")) {
+                // Removing every score of a name supersedes the updates pending for it
+                Iterator<String> iterator = pendingScores.keySet().iterator();
+
+                while (iterator.hasNext()) {
+                    if (iterator.next().startsWith(key)) {
+                        iterator.remove();
+                    }
+                }
+            }
+            // Re-inserted so the update keeps its place after anything queued before it
+            pendingScores.remove(key);
+            pendingScores.put(key, update);
+        }
+        pendingBoards.add(this);
+    }
+
+    /**
+     * Sends the score updates journaled since the last flush to all players
+     */
+    public void flushScores() {
+        List<Packet> packets;
+
+        synchronized (pendingScores) {
+            if (pendingScores.isEmpty()) {
+                return;
+            }
+            packets = new ArrayList<Packet>(pendingScores.size());
+            for (Object update : pendingScores.values()) {
+                // Changes are built from the score as it is now, which holds the last value set this tick
+                packets.add(update instanceof Score ? new S3CPacketUpdateScore((Score) update) : (Packet) update);
+            }
+            pendingScores.clear();
+        }
+        for (Packet packet : packets) {
+            this.a.an().a(packet);
+        }
+    }
+
+    /**
+     * Sends the journaled score updates of every scoreboard.
+     * Called once per server tick.
+     */
+    public static void flushAllScores() {
+        Iterator<ServerScoreboard> iterator = pendingBoards.iterator();
+
+        while (iterator.hasNext()) {
+            ServerScoreboard serverscoreboard = iterator.next();
+
+            iterator.remove();
+            serverscoreboard.flushScores();
+        }
+    }
 }
@@ -23,6 +23,7 @@ import net.canarymod.api.world.CanarySaveConverter;
 import net.canarymod.api.world.CanaryWorld;
 import net.canarymod.api.world.CanaryWorldManager;
 import net.canarymod.api.world.DimensionType;
+import net.canarymod.api.world.SpawnAreaPreparer;
 import net.canarymod.backbone.PermissionDataAccess;
 import net.canarymod.config.Configuration;
 import net.canarymod.config.WorldConfiguration;
@@ -30,7 +31,9 @@ import net.canarymod.database.Database;
 import net.canarymod.database.exceptions.DatabaseWriteException;
 import net.canarymod.hook.system.LoadWorldHook;
 import net.canarymod.hook.system.ServerTickHook;
+import net.canarymod.profiler.TickProfiler;
 import net.canarymod.tasks.ServerTaskManager;
+import net.canarymod.tasks.TickScheduler;
 import net.canarymod.util.ShutdownLogger;
 import net.minecraft.command.CommandBase;
 import net.minecraft.command.CommandResultStats;
@@ -49,10 +52,12 @@ import net.minecraft.network.rcon.RConConsoleSource;
 import net.minecraft.profiler.IPlayerUsage;
 import net.minecraft.profiler.PlayerUsageSnooper;
 import net.minecraft.profiler.Profiler;
+import net.minecraft.scoreboard.ServerScoreboard;
 import net.minecraft.server.dedicated.DedicatedServer;
 import net.minecraft.server.gui.IUpdatePlayerListBox;
 import net.minecraft.server.management.PlayerProfileCache;
 import net.minecraft.server.management.ServerConfigurationManager;
+import net.minecraft.stats.StatisticsFile;
 import net.minecraft.util.BlockPos;
 import net.minecraft.util.ChatComponentText;
 import net.minecraft.util.IChatComponent;
@@ -74,6 +79,7 @@ import net.minecraft.world.chunk.storage.AnvilSaveHandler;
 import net.minecraft.world.demo.DemoWorldServer;
 import net.minecraft.world.storage.ISaveFormat;
 import net.minecraft.world.storage.ISaveHandler;
+import net.minecraft.world.storage.SaveHandler;
 import net.minecraft.world.storage.WorldInfo;
 import net.visualillusionsent.utils.PropertiesFile;
 import org.apache.commons.lang3.Validate;
@@ -93,7 +99,9 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Random;
 import java.util.UUID;
@@ -165,6 +173,9 @@ public abstract class MinecraftServer implements ICommandSender, Runnable, IPlay
     // CanaryMod start: Stop Message
     private String stopMsg;
 
+    // CanaryMod: worlds whose spawn area is prepared once all startup worlds are loaded
+    private Map<WorldServer, SpawnAreaPreparer> deferredSpawnAreas;
+
     //
 
     public MinecraftServer(File file1, Proxy proxy, File file2) {
@@ -297,12 +308,56 @@ public abstract class MinecraftServer implements ICommandSender, Runnable, IPlay
         //}
 
         this.v.a(new WorldServer[]{ world }); // Init player data files
+        if (deferredSpawnAreas != null) {
+            // CanaryMod: read ahead now, generate terrain together with the other startup worlds
+            deferredSpawnAreas.put(world, SpawnAreaPreparer.prefetch(world));
+            worldManager.addWorld(world.getCanaryWorld());
+            return;
+        }
         this.k(world); // Generate terrain
         worldManager.addWorld(world.getCanaryWorld());
         new LoadWorldHook(world.getCanaryWorld()).call();
     }
 
+    /**
+     * Defers preparing the spawn areas of worlds loaded through initWorld until {@link #prepareDeferredSpawnAreas()},
+     * so the region files of all startup worlds are read concurrently
+     */
+    protected void deferSpawnAreas() {
+        this.deferredSpawnAreas = new LinkedHashMap<WorldServer, SpawnAreaPreparer>();
+    }
+
+    /**
+     * Prepares the spawn areas deferred since {@link #deferSpawnAreas()}, in the order the worlds were loaded,
+     * and fires their LoadWorldHooks
+     */
+    protected void prepareDeferredSpawnAreas() {
+        Map<WorldServer, SpawnAreaPreparer> deferred = this.deferredSpawnAreas;
+
+        this.deferredSpawnAreas = null;
+        if (deferred == null) {
+            return;
+        }
+        int i0 = 0;
+
+        for (Map.Entry<WorldServer, SpawnAreaPreparer> entry : deferred.entrySet()) {
+            ++i0;
+            j.info("Preparing spawn areas: world " + i0 + " of " + deferred.size());
+            this.k(entry.getKey(), entry.getValue());
+            new LoadWorldHook(entry.getKey().getCanaryWorld()).call();
+        }
+    }
+
     protected void k(WorldServer worldserver) { // CanaryMod: signature changed
+        this.k(worldserver, SpawnAreaPreparer.prefetch(worldserver));
+    }
+
+    // CanaryMod: spawn area read-ahead
+    private void k(WorldServer worldserver, SpawnAreaPreparer preparer) {
+        if (!SpawnAreaPreparer.keepsSpawnLoaded(worldserver)) {
+            j.info("Not preparing start region for level " + worldserver.getCanaryWorld().getFqName() + " (" + worldserver.P().getDimId() + "), spawn is not kept loaded");
+            return;
+        }
         boolean flag0 = true;
         boolean flag1 = true;
         boolean flag2 = true;
@@ -322,6 +377,8 @@ public abstract class MinecraftServer implements ICommandSender, Runnable, IPlay
 
                 if (i4 - i1 > 1000L) {
                     this.a_("Preparing spawn area", i0 * 100 / 625);
+                    // CanaryMod: report the read-ahead as well
+                    j.debug("Spawn area read-ahead: " + preparer.getRegionsRead() + "/" + preparer.getRegions() + " region files, " + preparer.getChunksRead() + " chunks");
                     i1 = i4;
                 }
 
@@ -329,6 +386,7 @@ public abstract class MinecraftServer implements ICommandSender, Runnable, IPlay
                 worldserver.b.c(blockpos.n() + i2 >> 4, blockpos.p() + i3 >> 4);
             }
         }
+        preparer.finish(); // CanaryMod: stop taking read-ahead chunks
 
         this.q();
     }
@@ -422,6 +480,8 @@ public abstract class MinecraftServer implements ICommandSender, Runnable, IPlay
 
                 worldserver.o();
             }
+            StatisticsFile.awaitWrites(); // CanaryMod: statistics are written in the background
+            SaveHandler.awaitPlayerWrites(); // CanaryMod: so is player data
 
             if (this.m.d()) {
                 this.m.e();
@@ -430,6 +490,7 @@ public abstract class MinecraftServer implements ICommandSender, Runnable, IPlay
             Logger canaryLogger = log == j ? Canary.log : new ShutdownLogger("CanaryMod");
             canaryLogger.info("Disabling Plugins ...");
             Canary.pluginManager().disableAllPlugins(canaryLogger);
+            TickProfiler.shutdown(); // CanaryMod: stop profiler exporters
         }
     }
 
@@ -458,6 +519,7 @@ public abstract class MinecraftServer implements ICommandSender, Runnable, IPlay
                 this.r.a((IChatComponent)(new ChatComponentText(this.E)));
                 this.r.a(new ServerStatusResponse.MinecraftProtocolVersionIdentifier("1.8", 47));
                 this.a(this.r);
+                TickProfiler.init(); // CanaryMod: start profiler exporters
 
                 while (this.w) {
                     long i1 = ax();
@@ -577,7 +639,11 @@ public abstract class MinecraftServer implements ICommandSender, Runnable, IPlay
     }
 
     protected void y() {
+        TickProfiler.tickStart(); // CanaryMod: profiler
+        long taskStart = TickProfiler.start();
         ServerTaskManager.runTasks(); // CanaryMod: Run tasks
+        TickScheduler.getInstance().runTasks(); // CanaryMod: then the budgeted scheduler
+        TickProfiler.phase(TickProfiler.SERVER, TickProfiler.Phase.TASKS, taskStart);
         long i0 = System.nanoTime();
 
         ++this.y;
@@ -613,6 +679,7 @@ public abstract class MinecraftServer implements ICommandSender, Runnable, IPlay
 
         this.b.a("tallying");
         this.g[this.y % 100] = System.nanoTime() - i0;
+        TickProfiler.tickEnd(); // CanaryMod: profiler
         this.b.b();
         this.b.a("snooper");
         if (!this.m.d() && this.y > 100) {
@@ -690,7 +757,9 @@ public abstract class MinecraftServer implements ICommandSender, Runnable, IPlay
 
             this.b.b();
             this.b.a("tracker");
+            long trackerStart = TickProfiler.start(); // CanaryMod: profiler
             worldserver.s().a();
+            TickProfiler.phase(w.getFqName(), TickProfiler.Phase.TRACKER, trackerStart);
             this.b.b();
             this.b.b();
             w.setNanoTick(this.y % 100, System.nanoTime() - i1);
@@ -698,9 +767,12 @@ public abstract class MinecraftServer implements ICommandSender, Runnable, IPlay
         }
 
         this.b.c("connection");
+        long networkStart = TickProfiler.start(); // CanaryMod: profiler
+        ServerScoreboard.flushAllScores(); // CanaryMod: send this tick's score updates
         this.ao().c();
         this.b.c("players");
         this.v.e();
+        TickProfiler.phase(TickProfiler.SERVER, TickProfiler.Phase.NETWORK, networkStart);
         this.b.c("tickables");
 
         for (i0 = 0; i0 < this.o.size(); ++i0) {
@@ -1040,8 +1112,8 @@ public abstract class MinecraftServer implements ICommandSender, Runnable, IPlay
         //WorldServer worldserver = (WorldServer) ((CanaryWorld) w).getHandle();
         if (worldserver != null) {
             // System.out.println(worldserver.getCanaryWorld().getName() + " Difficulty " + i0);
-            boolean monsters = Configuration.getWorldConfig(worldserver.getCanaryWorld().getFqName()).canSpawnMonsters();
-            boolean animals = Configuration.getWorldConfig(worldserver.getCanaryWorld().getFqName()).canSpawnAnimals();
+            boolean monsters = worldserver.getCanaryWorld().getConfigSnapshot().spawnMonsters;
+            boolean animals = worldserver.getCanaryWorld().getConfigSnapshot().spawnAnimals;
             if (worldserver.P().t()) {
                 worldserver.P().a(EnumDifficulty.HARD);
                 worldserver.a(monsters, animals);
@@ -337,6 +337,7 @@ public class DedicatedServer extends MinecraftServer implements IServer {
             Main.closeLibWarning(); // Close the warning dialog window now
 
             // CanaryMod changed call to initWorld
+            this.deferSpawnAreas(); // Read the spawn areas of all startup worlds at once
             this.initWorld(this.T(), this.T(), i2, worldtype, net.canarymod.api.world.DimensionType.NORMAL, s3);
             //Load up start-up auto-load enabled worlds
             for (String name : Canary.getServer().getWorldManager().getExistingWorlds()) {
@@ -346,6 +347,7 @@ public class DedicatedServer extends MinecraftServer implements IServer {
                     this.initWorld(nameAdj, nameAdj, wCfg.getWorldSeed().matches("\\d+") ? Long.valueOf(wCfg.getWorldSeed()) : wCfg.getWorldSeed().hashCode(), WorldType.a(wCfg.getWorldType().toString()), net.canarymod.api.world.DimensionType.fromName(name.replaceAll("^.+_(.+)$", "$1")), wCfg.getGeneratorSettings());
                 }
             }
+            this.prepareDeferredSpawnAreas();
             //
             long i4 = System.nanoTime() - i1;
             String s4 = String.format("%.3fs", new Object[]{ Double.valueOf((double)i4 / 1.0E9D) });
@@ -21,7 +21,9 @@ import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 public class PlayerManager {
 
@@ -32,7 +34,6 @@ public class PlayerManager {
     private final List e = Lists.newArrayList();
     private final List f = Lists.newArrayList();
     private int g;
-    private long h;
     private final int[][] i = new int[][]{ { 1, 0 }, { 0, 1 }, { -1, 0 }, { 0, -1 } };
 
     // CanaryMod
@@ -50,28 +51,16 @@ public class PlayerManager {
     }
 
     public void b() {
-        long i0 = this.b.K();
-        int i1;
         PlayerManager.PlayerInstance playermanager_playerinstance;
 
-        if (i0 - this.h > 8000L) {
-            this.h = i0;
-
-            for (i1 = 0; i1 < this.f.size(); ++i1) {
-                playermanager_playerinstance = (PlayerManager.PlayerInstance)this.f.get(i1);
+        // CanaryMod: only instances with pending changes are visited, chunks keep their inhabited time themselves
+        for (int i1 = 0; i1 < this.e.size(); ++i1) {
+            try {
+                playermanager_playerinstance = (PlayerManager.PlayerInstance) this.e.get(i1);
                 playermanager_playerinstance.b();
-                playermanager_playerinstance.a();
             }
-        }
-        else {
-            for (i1 = 0; i1 < this.e.size(); ++i1) {
-                try {
-                    playermanager_playerinstance = (PlayerManager.PlayerInstance) this.e.get(i1);
-                    playermanager_playerinstance.b();
-                }
-                catch (NullPointerException npex){
-                    Canary.log.debug("NullPointer supressed in PlayerManager", npex);
-                }
+            catch (NullPointerException npex){
+                Canary.log.debug("NullPointer supressed in PlayerManager", npex);
             }
         }
 
@@ -132,47 +121,8 @@ public class PlayerManager {
     }
 
     public void b(EntityPlayerMP entityplayermp) {
-        ArrayList arraylist = Lists.newArrayList(entityplayermp.f);
-        int i0 = 0;
-        int i1 = this.g;
-        int i2 = (int)entityplayermp.s >> 4;
-        int i3 = (int)entityplayermp.u >> 4;
-        int i4 = 0;
-        int i5 = 0;
-        ChunkCoordIntPair chunkcoordintpair = this.a(i2, i3, true).c;
-
-        entityplayermp.f.clear();
-        if (arraylist.contains(chunkcoordintpair)) {
-            entityplayermp.f.add(chunkcoordintpair);
-        }
-
-        int i6;
-
-        for (i6 = 1; i6 <= i1 * 2; ++i6) {
-            for (int i7 = 0; i7 < 2; ++i7) {
-                int[] aint = this.i[i0++ % 4];
-
-                for (int i8 = 0; i8 < i6; ++i8) {
-                    i4 += aint[0];
-                    i5 += aint[1];
-                    chunkcoordintpair = this.a(i2 + i4, i3 + i5, true).c;
-                    if (arraylist.contains(chunkcoordintpair)) {
-                        entityplayermp.f.add(chunkcoordintpair);
-                    }
-                }
-            }
-        }
-
-        i0 %= 4;
-
-        for (i6 = 0; i6 < i1 * 2; ++i6) {
-            i4 += this.i[i0][0];
-            i5 += this.i[i0][1];
-            chunkcoordintpair = this.a(i2 + i4, i3 + i5, true).c;
-            if (arraylist.contains(chunkcoordintpair)) {
-                entityplayermp.f.add(chunkcoordintpair);
-            }
-        }
+        // CanaryMod: the send queue orders itself by distance, only drop what went out of view
+        entityplayermp.f.retainWithin((int)entityplayermp.s >> 4, (int)entityplayermp.u >> 4, this.g);
     }
 
     public void c(EntityPlayerMP entityplayermp) {
@@ -294,7 +244,6 @@ public class PlayerManager {
         private short[] d = new short[64];
         private int e;
         private int f;
-        private long g;
 
         public PlayerInstance(int i0, int i1) {
             this.c = new ChunkCoordIntPair(i0, i1);
@@ -307,11 +256,15 @@ public class PlayerManager {
             }
             else {
                 if (this.b.isEmpty()) {
-                    this.g = PlayerManager.this.b.K();
+                    PlayerManager.this.b.a(this.c.a, this.c.b).setWatched(true); // CanaryMod: inhabited time accrues lazily
                 }
 
                 this.b.add(entityplayermp);
                 entityplayermp.f.add(this.c);
+                // CanaryMod: start building the packet of a chunk several players watch off-thread while it waits in the send queue
+                if (this.b.size() > 1) {
+                    PlayerManager.this.b.getChunkPayloadCache().prefetch(PlayerManager.this.b.a(this.c.a, this.c.b));
+                }
             }
         }
 
@@ -328,7 +281,7 @@ public class PlayerManager {
                 if (this.b.isEmpty()) {
                     long i5 = (long)this.c.a + 2147483647L | (long)this.c.b + 2147483647L << 32;
 
-                    this.a(chunk);
+                    chunk.setWatched(false); // CanaryMod
                     PlayerManager.this.d.d(i5);
                     PlayerManager.this.f.remove(this);
                     if (this.e > 0) {
@@ -340,15 +293,6 @@ public class PlayerManager {
             }
         }
 
-        public void a() {
-            this.a(PlayerManager.this.b.a(this.c.a, this.c.b));
-        }
-
-        private void a(Chunk chunk) {
-            chunk.c(chunk.w() + PlayerManager.this.b.K() - this.g);
-            this.g = PlayerManager.this.b.K();
-        }
-
         public void a(int i0, int i1, int i2) {
             if (this.e == 0) {
                 PlayerManager.this.e.add(this);
@@ -378,8 +322,27 @@ public class PlayerManager {
             }
         }
 
+        // CanaryMod: whether any watcher already has the chunk and needs its changes
+        private boolean hasReceivers() {
+            for (int i0 = 0; i0 < this.b.size(); ++i0) {
+                if (!((EntityPlayerMP)this.b.get(i0)).f.contains(this.c)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         public void b() {
+            if (this.e != 0 && !this.hasReceivers()) {
+                // CanaryMod: every watcher still has the whole chunk queued, which carries these changes
+                this.e = 0;
+                this.f = 0;
+                return;
+            }
             if (this.e != 0) {
+                // CanaryMod: each tile entity is sent at most once per flush
+                Set<TileEntity> tileentities = new LinkedHashSet<TileEntity>();
+
                 int i3;
                 int packet;
                 int i5;
@@ -392,7 +355,7 @@ public class PlayerManager {
 
                     this.a((Packet)(new S23PacketBlockChange(PlayerManager.this.b, blockpos)));
                     if (PlayerManager.this.b.p(blockpos).c().x()) {
-                        this.a(PlayerManager.this.b.s(blockpos));
+                        tileentities.add(PlayerManager.this.b.s(blockpos));
                     }
                 }
                 else {
@@ -401,6 +364,7 @@ public class PlayerManager {
                     if (this.e == 64) {
                         i3 = this.c.a * 16;
                         packet = this.c.b * 16;
+                        PlayerManager.this.b.getLightingQueue().resolve(this.c.a, this.c.b); // CanaryMod: light must be final before it is sent
                         this.a((Packet)(new S21PacketChunkData(PlayerManager.this.b.a(this.c.a, this.c.b), false, this.f)));
 
                         for (i5 = 0; i5 < 16; ++i5) {
@@ -409,7 +373,7 @@ public class PlayerManager {
                                 List list = PlayerManager.this.b.a(i3, i6, packet, i3 + 16, i6 + 16, packet + 16);
 
                                 for (int i7 = 0; i7 < list.size(); ++i7) {
-                                    this.a((TileEntity)list.get(i7));
+                                    tileentities.add((TileEntity)list.get(i7));
                                 }
                             }
                         }
@@ -424,12 +388,16 @@ public class PlayerManager {
                             BlockPos blockpos1 = new BlockPos(packet, i5, i6);
 
                             if (PlayerManager.this.b.p(blockpos1).c().x()) {
-                                this.a(PlayerManager.this.b.s(blockpos1));
+                                tileentities.add(PlayerManager.this.b.s(blockpos1));
                             }
                         }
                     }
                 }
 
+                for (TileEntity tileentity : tileentities) {
+                    this.a(tileentity);
+                }
+
                 this.e = 0;
                 this.f = 0;
             }
@@ -4,10 +4,10 @@ import com.google.common.base.Charsets;
 import com.mojang.authlib.GameProfile;
 import com.mojang.authlib.exceptions.AuthenticationUnavailableException;
 import com.mojang.authlib.properties.Property;
-import com.mojang.authlib.yggdrasil.YggdrasilMinecraftSessionServiceModified;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.util.concurrent.GenericFutureListener;
+import net.canarymod.api.LoginAuthenticator;
 import net.minecraft.network.NetworkManager;
 import net.minecraft.network.Packet;
 import net.minecraft.network.login.INetHandlerLoginServer;
@@ -33,10 +33,8 @@ import java.security.PrivateKey;
 import java.util.Arrays;
 import java.util.Random;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class NetHandlerLoginServer implements INetHandlerLoginServer, IUpdatePlayerListBox {
-    private static final AtomicInteger b = new AtomicInteger(0);
     private static final Logger c = LogManager.getLogger();
     private static final Random d = new Random();
     private final byte[] e = new byte[4];
@@ -116,6 +114,12 @@ public class NetHandlerLoginServer implements INetHandlerLoginServer, IUpdatePla
     public void a(C00PacketLoginStart c00packetloginstart) {
         Validate.validState(this.g == NetHandlerLoginServer.LoginState.HELLO, "Unexpected hello packet", new Object[0]);
         this.i = c00packetloginstart.a();
+        // CanaryMod: login throttle per address
+        if (this.a.b() instanceof InetSocketAddress && !LoginAuthenticator.allowLogin(((InetSocketAddress) this.a.b()).getAddress())) {
+            this.a("Connection throttled! Please wait before reconnecting.");
+            return;
+        }
+        //
         if (this.f.ae() && !this.a.c()) {
             this.g = NetHandlerLoginServer.LoginState.KEY;
             this.a.a((Packet)(new S01PacketEncryptionRequest(this.j, this.f.P().getPublic(), this.e)));
@@ -137,7 +141,8 @@ public class NetHandlerLoginServer implements INetHandlerLoginServer, IUpdatePla
             this.k = c01packetencryptionresponse.a(s0);
             this.g = NetHandlerLoginServer.LoginState.AUTHENTICATING;
             this.a.a(this.k);
-            (new Thread("User Authenticator #" + b.incrementAndGet()) {
+            // CanaryMod: verify on the bounded authenticator pool, refuse the login if it is backed up
+            boolean queued = LoginAuthenticator.submit(new Runnable() {
                 public void run() {
                     GameProfile gameprofile = NetHandlerLoginServer.this.i;
                     try {
@@ -145,7 +150,7 @@ public class NetHandlerLoginServer implements INetHandlerLoginServer, IUpdatePla
                         // CanaryMod: Pull user ip and add it to the session checks
                         String userIP = ((InetSocketAddress) NetHandlerLoginServer.this.a.b()).getAddress().getHostAddress();
                         // CanaryMod: Pass IP for possible session IP verification
-                        NetHandlerLoginServer.this.i = ((YggdrasilMinecraftSessionServiceModified)NetHandlerLoginServer.this.f.aB()).hasJoinedServerVerifyIP(new GameProfile((UUID)null, gameprofile.getName()), s0, userIP);
+                        NetHandlerLoginServer.this.i = LoginAuthenticator.verify(NetHandlerLoginServer.this.f, new GameProfile((UUID)null, gameprofile.getName()), s0, userIP);
                         //
                         if (NetHandlerLoginServer.this.i != null) {
                             NetHandlerLoginServer.c.info("UUID of player " + NetHandlerLoginServer.this.i.getName() + " is " + NetHandlerLoginServer.this.i.getId());
@@ -173,8 +178,12 @@ public class NetHandlerLoginServer implements INetHandlerLoginServer, IUpdatePla
                         }
                     }
                 }
+            });
+
+            if (!queued) {
+                this.a("Too many players are logging in right now, please try again shortly.");
             }
-            ).start();
+            //
         }
     }
 
@@ -2,7 +2,9 @@ package net.minecraft.server.network;
 
 import com.google.common.collect.Lists;
 import com.mojang.authlib.GameProfile;
+import net.canarymod.api.ServerListStatusCache;
 import net.canarymod.api.chat.CanaryChatComponent;
+import net.canarymod.hook.CanaryHookExecutor;
 import net.canarymod.hook.system.ServerListPingHook;
 import net.minecraft.network.NetworkManager;
 import net.minecraft.network.Packet;
@@ -21,6 +23,8 @@ import java.net.InetSocketAddress;
 
 public class NetHandlerStatusServer implements INetHandlerStatusServer {
 
+    private static final ServerListStatusCache statusCache = new ServerListStatusCache(); // CanaryMod
+
     private final MinecraftServer a;
     private final NetworkManager b;
     private final C00Handshake c00handshake; // CanaryMod
@@ -36,6 +40,17 @@ public class NetHandlerStatusServer implements INetHandlerStatusServer {
     }
 
     public void a(C00PacketServerQuery c00packetserverquery) {
+        // CanaryMod: limit pings per address, and share one status packet unless a plugin may change it
+        InetSocketAddress address = (InetSocketAddress) this.b.b();
+        if (!statusCache.allowPing(address == null ? null : address.getAddress())) {
+            this.b.a((IChatComponent) new ChatComponentText("Too many pings"));
+            return;
+        }
+        if (!CanaryHookExecutor.hasListeners(ServerListPingHook.class)) {
+            this.b.a((Packet) statusCache.getPacket(this.a));
+            return;
+        }
+        //
         // CanaryMod: ServerListPingHook
         ServerStatusResponse ssr = this.a.aE();
         ServerListPingHook hook = (ServerListPingHook)new ServerListPingHook((InetSocketAddress)this.b.b(), c00handshake.b(), c00handshake.b.split("\00")[0], c00handshake.getPort(), ((ChatComponentText)ssr.a()).getWrapper(), ssr.b().b(), ssr.b().a(), ssr.d(), Lists.newArrayList(ssr.b().c())).call();
@@ -2,7 +2,9 @@ package net.minecraft.stats;
 
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
@@ -24,6 +26,10 @@ import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 public class StatisticsFile extends StatFileWriter {
 
@@ -34,6 +40,12 @@ public class StatisticsFile extends StatFileWriter {
     private int f = -300;
     private boolean g = false;
 
+    // CanaryMod: stat files are written in the background, in order, and only when a stat changed since the last save
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("Statistics Writer").setDaemon(true).build());
+    private int changes;
+    private int savedChanges;
+    //
+
     public StatisticsFile(MinecraftServer minecraftserver, File file1) {
         this.c = minecraftserver;
         this.d = file1;
@@ -44,6 +56,7 @@ public class StatisticsFile extends StatFileWriter {
             try {
                 this.a.clear();
                 this.a.putAll(this.a(FileUtils.readFileToString(this.d)));
+                this.savedChanges = this.changes; // CanaryMod: what is on disk now
             }
             catch (IOException ioexception) {
                 b.error("Couldn\'t read statistics file " + this.d, ioexception);
@@ -55,11 +68,57 @@ public class StatisticsFile extends StatFileWriter {
     }
 
     public void b() {
+        // CanaryMod: skip unchanged stats, take a snapshot here and write it out in the background
+        if (this.changes == this.savedChanges) {
+            return;
+        }
+        this.savedChanges = this.changes;
+        final Snapshot snapshot = new Snapshot(this.a);
+        final File file = this.d;
+
+        Runnable write = new Runnable() {
+            @Override
+            public void run() {
+                File temp = new File(file.getPath() + ".tmp");
+
+                try {
+                    FileUtils.writeStringToFile(temp, snapshot.toJson());
+                    if (!temp.renameTo(file)) {
+                        // Some platforms won't rename over an existing file
+                        file.delete();
+                        if (!temp.renameTo(file)) {
+                            throw new IOException("Couldn't move " + temp + " to " + file);
+                        }
+                    }
+                }
+                catch (IOException ioexception) {
+                    b.error("Couldn\'t save stats", ioexception);
+                }
+            }
+        };
+
         try {
-            FileUtils.writeStringToFile(this.d, a(this.a));
+            writer.execute(write);
         }
-        catch (IOException ioexception) {
-            b.error("Couldn\'t save stats", ioexception);
+        catch (RejectedExecutionException rejectedexecutionexception) {
+            // Shutting down, write it right away
+            write.run();
+        }
+        //
+    }
+
+    /**
+     * Waits for the statistics writes queued so far to reach the disk
+     */
+    public static void awaitWrites() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30L, TimeUnit.SECONDS)) {
+                b.warn("Timed out waiting for statistics to be written");
+            }
+        }
+        catch (InterruptedException interruptedexception) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -68,6 +127,7 @@ public class StatisticsFile extends StatFileWriter {
 
         super.a(entityplayer, statbase, i0);
         this.e.add(statbase);
+        ++this.changes; // CanaryMod
         if (statbase.d() && i1 == 0 && i0 > 0) {
             this.g = true;
             if (this.c.az() && entityplayer != null) { // CanaryMod: null check
@@ -226,4 +286,60 @@ public class StatisticsFile extends StatFileWriter {
     public boolean e() {
         return this.g;
     }
+
+    /**
+     * CanaryMod: the values of a statistics map at one point in time, turned into JSON off the main thread the same
+     * way {@link #a(Map)} does it. Progress objects are mutable and serialized right away.
+     */
+    private static final class Snapshot {
+        private final String[] ids;
+        private final int[] values;
+        private final JsonElement[] progress;
+
+        Snapshot(Map map) {
+            this.ids = new String[map.size()];
+            this.values = new int[map.size()];
+            this.progress = new JsonElement[map.size()];
+            int i0 = 0;
+            Iterator iterator = map.entrySet().iterator();
+
+            while (iterator.hasNext()) {
+                Entry entry = (Entry)iterator.next();
+                TupleIntJsonSerializable tupleintjsonserializable = (TupleIntJsonSerializable)entry.getValue();
+
+                this.ids[i0] = ((StatBase)entry.getKey()).e;
+                this.values[i0] = tupleintjsonserializable.a();
+                if (tupleintjsonserializable.b() != null) {
+                    try {
+                        this.progress[i0] = tupleintjsonserializable.b().a();
+                    }
+                    catch (Throwable throwable) {
+                        b.warn("Couldn\'t save statistic " + ((StatBase)entry.getKey()).e() + ": error serializing progress", throwable);
+                        this.progress[i0] = JsonNull.INSTANCE;
+                    }
+                }
+                ++i0;
+            }
+        }
+
+        String toJson() {
+            JsonObject jsonobject = new JsonObject();
+
+            for (int i0 = 0; i0 < this.ids.length; ++i0) {
+                if (this.progress[i0] != null) {
+                    JsonObject jsonobject1 = new JsonObject();
+
+                    jsonobject1.addProperty("value", Integer.valueOf(this.values[i0]));
+                    if (this.progress[i0] != JsonNull.INSTANCE) {
+                        jsonobject1.add("progress", this.progress[i0]);
+                    }
+                    jsonobject.add(this.ids[i0], jsonobject1);
+                }
+                else {
+                    jsonobject.addProperty(this.ids[i0], Integer.valueOf(this.values[i0]));
+                }
+            }
+            return jsonobject.toString();
+        }
+    }
 }
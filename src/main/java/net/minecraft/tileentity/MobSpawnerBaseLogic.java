@@ -35,6 +35,8 @@ public abstract class MobSpawnerBaseLogic {
 
     // CanaryMod: Variable Declaration
     public MobSpawnerLogic logic = (MobSpawnerLogic) new CanaryMobSpawnerLogic(this);
+    private String templateName; // the entity name last spawned
+    private Class templateClass; // and the class it created, to count nearby entities without building one first
 
     // CanaryMod: End
 
@@ -58,6 +60,11 @@ public abstract class MobSpawnerBaseLogic {
     private boolean g() {
         BlockPos blockpos = this.b();
 
+        // CanaryMod: fixed spawners on the server ask the world's index instead of checking every player
+        if (this.isStationary() && !this.a().D) {
+            return this.a().getSpawnerActivationIndex().isActive(this);
+        }
+        //
         return this.a().b((double) blockpos.n() + 0.5D, (double) blockpos.o() + 0.5D, (double) blockpos.p() + 0.5D, (double) this.l);
     }
 
@@ -91,21 +98,38 @@ public abstract class MobSpawnerBaseLogic {
                 }
 
                 boolean flag0 = false;
+                int i2 = -1; // CanaryMod: nearby count, only taken again after an entity was added
 
                 for (int i0 = 0; i0 < this.i; ++i0) {
-                    Entity entity = EntityList.a(this.f(), this.a());
-
-                    if (entity == null) {
-                        return;
+                    // CanaryMod: count by the remembered class first, only build the entity if there is room for it
+                    String s0 = this.f();
+                    Entity entity = null;
+
+                    if (!s0.equals(this.templateName)) {
+                        entity = EntityList.a(s0, this.a());
+                        if (entity == null) {
+                            return;
+                        }
+                        this.templateName = s0;
+                        this.templateClass = entity.getClass();
                     }
 
-                    int i1 = this.a().a(entity.getClass(), (new AxisAlignedBB((double) blockpos.n(), (double) blockpos.o(), (double) blockpos.p(), (double) (blockpos.n() + 1), (double) (blockpos.o() + 1), (double) (blockpos.p() + 1))).b((double) this.m, (double) this.m, (double) this.m)).size();
+                    int i1 = i2 >= 0 ? i2 : this.a().a(this.templateClass, (new AxisAlignedBB((double) blockpos.n(), (double) blockpos.o(), (double) blockpos.p(), (double) (blockpos.n() + 1), (double) (blockpos.o() + 1), (double) (blockpos.p() + 1))).b((double) this.m, (double) this.m, (double) this.m)).size();
 
+                    i2 = i1;
                     if (i1 >= this.k) {
                         this.h();
                         return;
                     }
 
+                    if (entity == null) {
+                        entity = EntityList.a(s0, this.a());
+                        if (entity == null) {
+                            return;
+                        }
+                    }
+                    //
+
                     d0 = (double) blockpos.n() + (this.a().s.nextDouble() - this.a().s.nextDouble()) * (double) this.m + 0.5D;
                     double d3 = (double) (blockpos.o() + this.a().s.nextInt(3) - 1);
                     double d4 = (double) blockpos.p() + (this.a().s.nextDouble() - this.a().s.nextDouble()) * (double) this.m + 0.5D;
@@ -120,6 +144,7 @@ public abstract class MobSpawnerBaseLogic {
                         }
 
                         flag0 = true;
+                        i2 = -1; // CanaryMod
                     }
                 }
 
@@ -301,6 +326,11 @@ public abstract class MobSpawnerBaseLogic {
 
     public abstract BlockPos b();
 
+    // CanaryMod: whether this spawner never moves, as spawner blocks do and spawner minecarts don't
+    protected boolean isStationary() {
+        return false;
+    }
+
     public class WeightedRandomMinecart extends WeightedRandom.Item {
 
         private final NBTTagCompound c;
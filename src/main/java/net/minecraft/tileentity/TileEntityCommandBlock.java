@@ -40,6 +40,11 @@ public class TileEntityCommandBlock extends TileEntity {
             return null;
         }
 
+        // CanaryMod: try again on the next tick
+        protected void deferExecution(World world) {
+            world.a(TileEntityCommandBlock.this.c, world.p(TileEntityCommandBlock.this.c).c(), 1);
+        }
+
         // CanaryMod: Add method to get CommandBlock reference (Can be either CanaryCommandBlock or CanaryCommandBlockMinecart)
         public net.canarymod.api.CommandBlockLogic getReference() {
             return TileEntityCommandBlock.this.getCanaryCommandBlock();
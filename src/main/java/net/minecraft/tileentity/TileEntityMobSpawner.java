@@ -25,6 +25,11 @@ public class TileEntityMobSpawner extends TileEntity implements IUpdatePlayerLis
             return TileEntityMobSpawner.this.c;
         }
 
+        // CanaryMod: spawner blocks stay put, so the world can index them
+        protected boolean isStationary() {
+            return true;
+        }
+
         public void a(WeightedRandomMinecart var1) {
             super.a(var1);
             if (this.a() != null) {
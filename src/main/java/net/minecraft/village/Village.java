@@ -17,8 +17,14 @@ import net.minecraft.util.*;
 import net.minecraft.world.IBlockAccess;
 import net.minecraft.world.World;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeMap;
 
 public class Village {
@@ -38,6 +44,11 @@ public class Village {
 
     // CanaryMod
     private CanaryVillage ville;
+    // Doors by column and by chunk, and their position in the door list for tie breaks
+    private final Map<Long, List<VillageDoorInfo>> doorColumns = new HashMap<Long, List<VillageDoorInfo>>();
+    private final Map<Long, List<VillageDoorInfo>> doorChunks = new HashMap<Long, List<VillageDoorInfo>>();
+    private final Map<VillageDoorInfo, Integer> doorOrder = new IdentityHashMap<VillageDoorInfo, Integer>();
+    private int doorCount;
 
     //
 
@@ -167,6 +178,11 @@ public class Village {
     }
 
     public VillageDoorInfo b(BlockPos blockpos) {
+        // CanaryMod: search the door index if there are enough doors for it to pay off
+        if (this.b.size() > 16) {
+            return this.nearestDoor(blockpos);
+        }
+        //
         VillageDoorInfo villagedoorinfo = null;
         int i0 = Integer.MAX_VALUE;
         Iterator iterator = this.b.iterator();
@@ -185,6 +201,15 @@ public class Village {
     }
 
     public VillageDoorInfo c(BlockPos blockpos) {
+        // CanaryMod: a door within 16 blocks always wins over the ones further away, look there first
+        if (this.b.size() > 16) {
+            VillageDoorInfo near = this.leastRestrictedDoorNear(blockpos);
+
+            if (near != null) {
+                return near;
+            }
+        }
+        //
         VillageDoorInfo villagedoorinfo = null;
         int i0 = Integer.MAX_VALUE;
         Iterator iterator = this.b.iterator();
@@ -214,7 +239,14 @@ public class Village {
             return null;
         }
         else {
-            Iterator iterator = this.b.iterator();
+            // CanaryMod: only the doors in this column can match, in door list order
+            List<VillageDoorInfo> doors = this.doorColumns.get(column(blockpos.n(), blockpos.p()));
+
+            if (doors == null) {
+                return null;
+            }
+            Iterator iterator = doors.iterator();
+            //
 
             VillageDoorInfo villagedoorinfo;
 
@@ -233,6 +265,7 @@ public class Village {
 
     public void a(VillageDoorInfo villagedoorinfo) {
         this.b.add(villagedoorinfo);
+        this.indexDoor(villagedoorinfo); // CanaryMod
         this.c = this.c.a((Vec3i) villagedoorinfo.d());
         this.n();
         this.f = villagedoorinfo.h();
@@ -330,6 +363,7 @@ public class Village {
                 flag0 = true;
                 villagedoorinfo.a(true);
                 iterator.remove();
+                this.unindexDoor(villagedoorinfo); // CanaryMod
             }
         }
 
@@ -399,6 +433,7 @@ public class Village {
             VillageDoorInfo villagedoorinfo = new VillageDoorInfo(new BlockPos(nbttagcompound1.f("X"), nbttagcompound1.f("Y"), nbttagcompound1.f("Z")), nbttagcompound1.f("IDX"), nbttagcompound1.f("IDZ"), nbttagcompound1.f("TS"));
 
             this.b.add(villagedoorinfo);
+            this.indexDoor(villagedoorinfo); // CanaryMod
         }
 
         NBTTagList nbttaglist1 = nbttagcompound.c("Players", 10);
@@ -488,5 +523,142 @@ public class Village {
     public CanaryVillage getCanaryVillage() {
         return ville;
     }
+
+    private static Long column(int x, int z) {
+        return Long.valueOf((long) x & 4294967295L | ((long) z & 4294967295L) << 32);
+    }
+
+    private static void add(Map<Long, List<VillageDoorInfo>> index, Long key, VillageDoorInfo villagedoorinfo) {
+        List<VillageDoorInfo> doors = index.get(key);
+
+        if (doors == null) {
+            doors = new ArrayList<VillageDoorInfo>(2);
+            index.put(key, doors);
+        }
+        doors.add(villagedoorinfo);
+    }
+
+    private static void remove(Map<Long, List<VillageDoorInfo>> index, Long key, VillageDoorInfo villagedoorinfo) {
+        List<VillageDoorInfo> doors = index.get(key);
+
+        if (doors != null && doors.remove(villagedoorinfo) && doors.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private void indexDoor(VillageDoorInfo villagedoorinfo) {
+        BlockPos blockpos = villagedoorinfo.d();
+
+        add(this.doorColumns, column(blockpos.n(), blockpos.p()), villagedoorinfo);
+        add(this.doorChunks, column(blockpos.n() >> 4, blockpos.p() >> 4), villagedoorinfo);
+        this.doorOrder.put(villagedoorinfo, this.doorCount++);
+    }
+
+    private void unindexDoor(VillageDoorInfo villagedoorinfo) {
+        BlockPos blockpos = villagedoorinfo.d();
+
+        remove(this.doorColumns, column(blockpos.n(), blockpos.p()), villagedoorinfo);
+        remove(this.doorChunks, column(blockpos.n() >> 4, blockpos.p() >> 4), villagedoorinfo);
+        this.doorOrder.remove(villagedoorinfo);
+    }
+
+    // Whether a door comes before another in the door list
+    private boolean isBefore(VillageDoorInfo villagedoorinfo, VillageDoorInfo villagedoorinfo1) {
+        return this.doorOrder.get(villagedoorinfo) < this.doorOrder.get(villagedoorinfo1);
+    }
+
+    /**
+     * Finds the door closest to a position the way {@link #b(BlockPos)} does, visiting the chunks with doors
+     * closest first and stopping once no chunk left can hold a closer door.
+     *
+     * @param blockpos
+     *         the position
+     *
+     * @return the closest door, the first in the door list on a tie, or null if there are no doors
+     */
+    public VillageDoorInfo nearestDoor(final BlockPos blockpos) {
+        final Map<Long, Long> bounds = new HashMap<Long, Long>();
+
+        for (Long key : this.doorChunks.keySet()) {
+            int x0 = (int) (key.longValue() & 4294967295L) << 4;
+            int z0 = (int) (key.longValue() >>> 32) << 4;
+            long dx = Math.max(0, Math.max(x0 - blockpos.n(), blockpos.n() - (x0 + 15)));
+            long dz = Math.max(0, Math.max(z0 - blockpos.p(), blockpos.p() - (z0 + 15)));
+
+            bounds.put(key, dx * dx + dz * dz);
+        }
+        List<Long> keys = new ArrayList<Long>(bounds.keySet());
+
+        Collections.sort(keys, new Comparator<Long>() {
+            @Override
+            public int compare(Long key0, Long key1) {
+                return bounds.get(key0).compareTo(bounds.get(key1));
+            }
+        });
+        VillageDoorInfo villagedoorinfo = null;
+        int i0 = Integer.MAX_VALUE;
+
+        for (Long key : keys) {
+            if (villagedoorinfo != null && bounds.get(key) > (long) i0) {
+                break;
+            }
+            for (VillageDoorInfo villagedoorinfo1 : this.doorChunks.get(key)) {
+                int i1 = villagedoorinfo1.a(blockpos);
+
+                if (i1 < i0 || i1 == i0 && villagedoorinfo != null && this.isBefore(villagedoorinfo1, villagedoorinfo)) {
+                    villagedoorinfo = villagedoorinfo1;
+                    i0 = i1;
+                }
+            }
+        }
+        return villagedoorinfo;
+    }
+
+    // The least restricted door within 16 blocks, as c(BlockPos) picks it if there is one, or null
+    private VillageDoorInfo leastRestrictedDoorNear(BlockPos blockpos) {
+        VillageDoorInfo villagedoorinfo = null;
+        int i0 = Integer.MAX_VALUE;
+        int cx = blockpos.n() >> 4;
+        int cz = blockpos.p() >> 4;
+
+        for (int x = cx - 1; x <= cx + 1; ++x) {
+            for (int z = cz - 1; z <= cz + 1; ++z) {
+                List<VillageDoorInfo> doors = this.doorChunks.get(column(x, z));
+
+                if (doors == null) {
+                    continue;
+                }
+                for (VillageDoorInfo villagedoorinfo1 : doors) {
+                    if (villagedoorinfo1.a(blockpos) > 256) {
+                        continue;
+                    }
+                    int i1 = villagedoorinfo1.c();
+
+                    if (i1 < i0 || i1 == i0 && villagedoorinfo != null && this.isBefore(villagedoorinfo1, villagedoorinfo)) {
+                        villagedoorinfo = villagedoorinfo1;
+                        i0 = i1;
+                    }
+                }
+            }
+        }
+        // Doors further away score at least 257000, so a nearby door only surely wins below that
+        return i0 < 257000 ? villagedoorinfo : null;
+    }
+
+    /**
+     * Gets the doors in the given chunk
+     *
+     * @param x
+     *         the chunk x
+     * @param z
+     *         the chunk z
+     *
+     * @return the doors, possibly empty
+     */
+    public List<VillageDoorInfo> getDoorsInChunk(int x, int z) {
+        List<VillageDoorInfo> doors = this.doorChunks.get(column(x, z));
+
+        return doors == null ? Collections.<VillageDoorInfo>emptyList() : Collections.unmodifiableList(doors);
+    }
     //
 }
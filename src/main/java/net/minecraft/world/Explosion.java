@@ -203,42 +203,48 @@ public class Explosion {
 
         if (this.b) {
             iterator = this.j.iterator();
+            this.d.getLightingQueue().beginBulk(); // CanaryMod: relight the blown up area once, with the next lighting batch
+
+            try {
+                while (iterator.hasNext()) {
+                    blockpos = (BlockPos) iterator.next();
+                    Block block = this.d.p(blockpos).c();
+
+                    if (flag0) {
+                        double d0 = (double) ((float) blockpos.n() + this.d.s.nextFloat());
+                        double d1 = (double) ((float) blockpos.o() + this.d.s.nextFloat());
+                        double d2 = (double) ((float) blockpos.p() + this.d.s.nextFloat());
+                        double d3 = d0 - this.e;
+                        double d4 = d1 - this.f;
+                        double d5 = d2 - this.g;
+                        double d6 = (double) MathHelper.a(d3 * d3 + d4 * d4 + d5 * d5);
+
+                        d3 /= d6;
+                        d4 /= d6;
+                        d5 /= d6;
+                        double d7 = 0.5D / (d6 / (double) this.i + 0.1D);
+
+                        d7 *= (double) (this.d.s.nextFloat() * this.d.s.nextFloat() + 0.3F);
+                        d3 *= d7;
+                        d4 *= d7;
+                        d5 *= d7;
+                        this.d.a(EnumParticleTypes.EXPLOSION_NORMAL, (d0 + this.e * 1.0D) / 2.0D, (d1 + this.f * 1.0D) / 2.0D, (d2 + this.g * 1.0D) / 2.0D, d3, d4, d5, new int[0]);
+                        this.d.a(EnumParticleTypes.SMOKE_NORMAL, d0, d1, d2, d3, d4, d5, new int[0]);
+                    }
 
-            while (iterator.hasNext()) {
-                blockpos = (BlockPos) iterator.next();
-                Block block = this.d.p(blockpos).c();
-
-                if (flag0) {
-                    double d0 = (double) ((float) blockpos.n() + this.d.s.nextFloat());
-                    double d1 = (double) ((float) blockpos.o() + this.d.s.nextFloat());
-                    double d2 = (double) ((float) blockpos.p() + this.d.s.nextFloat());
-                    double d3 = d0 - this.e;
-                    double d4 = d1 - this.f;
-                    double d5 = d2 - this.g;
-                    double d6 = (double) MathHelper.a(d3 * d3 + d4 * d4 + d5 * d5);
-
-                    d3 /= d6;
-                    d4 /= d6;
-                    d5 /= d6;
-                    double d7 = 0.5D / (d6 / (double) this.i + 0.1D);
-
-                    d7 *= (double) (this.d.s.nextFloat() * this.d.s.nextFloat() + 0.3F);
-                    d3 *= d7;
-                    d4 *= d7;
-                    d5 *= d7;
-                    this.d.a(EnumParticleTypes.EXPLOSION_NORMAL, (d0 + this.e * 1.0D) / 2.0D, (d1 + this.f * 1.0D) / 2.0D, (d2 + this.g * 1.0D) / 2.0D, d3, d4, d5, new int[0]);
-                    this.d.a(EnumParticleTypes.SMOKE_NORMAL, d0, d1, d2, d3, d4, d5, new int[0]);
-                }
+                    if (block.r() != Material.a) {
+                        if (block.a(this)) {
+                            block.a(this.d, blockpos, this.d.p(blockpos), 1.0F / this.i, 0);
+                        }
 
-                if (block.r() != Material.a) {
-                    if (block.a(this)) {
-                        block.a(this.d, blockpos, this.d.p(blockpos), 1.0F / this.i, 0);
+                        this.d.a(blockpos, Blocks.a.P(), 3);
+                        block.a(this.d, blockpos, this);
                     }
-
-                    this.d.a(blockpos, Blocks.a.P(), 3);
-                    block.a(this.d, blockpos, this);
                 }
             }
+            finally {
+                this.d.getLightingQueue().endBulk();
+            }
         }
 
         if (this.a) {
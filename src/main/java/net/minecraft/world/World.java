@@ -5,15 +5,19 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import net.canarymod.api.entity.living.humanoid.CanaryHuman;
 import net.canarymod.api.entity.vehicle.CanaryVehicle;
+import net.canarymod.api.world.BlockWatch;
 import net.canarymod.api.world.CanaryWorld;
+import net.canarymod.api.world.LightingQueue;
+import net.canarymod.api.world.SpawnerActivationIndex;
+import net.canarymod.api.world.WorldConfigSnapshot;
 import net.canarymod.api.world.blocks.BlockType;
 import net.canarymod.api.world.blocks.CanaryBlock;
-import net.canarymod.config.Configuration;
-import net.canarymod.config.WorldConfiguration;
+import net.canarymod.hook.CanaryHookExecutor;
 import net.canarymod.hook.entity.EntitySpawnHook;
 import net.canarymod.hook.entity.VehicleCollisionHook;
 import net.canarymod.hook.world.BlockUpdateHook;
 import net.canarymod.hook.world.WeatherChangeHook;
+import net.canarymod.profiler.TickProfiler;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockHopper;
 import net.minecraft.block.BlockLiquid;
@@ -118,6 +122,9 @@ public abstract class World implements IBlockAccess {
 
     // CanaryMod: multiworld
     public CanaryWorld canaryDimension;
+    private SpawnerActivationIndex spawnerIndex; // CanaryMod: which mob spawners have a player in range
+    private LightingQueue lighting; // CanaryMod: deferred light checks of block changes
+    private final BlockWatch blockWatch = new BlockWatch(); // CanaryMod: caches told of block changes
 
     public World(ISaveHandler isavehandler, WorldInfo worldinfo, WorldProvider worldprovider, Profiler profiler, boolean flag0, net.canarymod.api.world.DimensionType type) {
         this.K = this.s.nextInt(12000);
@@ -289,9 +296,13 @@ public abstract class World implements IBlockAccess {
             else {
                 Block block1 = iblockstate1.c();
 
+                this.blockWatch.changed(blockpos); // CanaryMod: before neighbours react to the change
+
                 if (block.n() != block1.n() || block.p() != block1.p()) {
                     this.B.a("checkLight");
-                    this.x(blockpos);
+                    if (!this.getLightingQueue().queue(blockpos)) { // CanaryMod: run with the next lighting batch if deferred
+                        this.x(blockpos);
+                    }
                     this.B.b();
                 }
 
@@ -970,7 +981,8 @@ public abstract class World implements IBlockAccess {
         // CanaryMod: Implement M4411K4 VEHICLECOLLISION hook
         CanaryVehicle vehicle = null;
 
-        if (entity instanceof EntityMinecart || entity instanceof EntityBoat) {
+        // Only vehicles that a plugin listens to collisions of need the hook built
+        if ((entity instanceof EntityMinecart || entity instanceof EntityBoat) && !list.isEmpty() && CanaryHookExecutor.hasListeners(VehicleCollisionHook.class)) {
             vehicle = (CanaryVehicle) entity.getCanaryEntity();
         }
 
@@ -1116,6 +1128,7 @@ public abstract class World implements IBlockAccess {
     public void i() {
         this.B.a("entities");
         this.B.a("global");
+        long profilerStart = TickProfiler.start(); // CanaryMod: profiler
 
         int i0;
         Entity entity;
@@ -1184,6 +1197,7 @@ public abstract class World implements IBlockAccess {
 
             this.B.a("tick");
             if (!entity.I) {
+                long entityStart = TickProfiler.startSampled(); // CanaryMod: profiler
                 try {
                     this.g(entity);
                 }
@@ -1193,6 +1207,7 @@ public abstract class World implements IBlockAccess {
                     entity.a(crashreportcategory);
                     throw new ReportedException(crashreport);
                 }
+                TickProfiler.entity(entity.getClass(), entityStart);
             }
 
             this.B.b();
@@ -1211,7 +1226,9 @@ public abstract class World implements IBlockAccess {
             this.B.b();
         }
 
+        TickProfiler.phase(this.canaryDimension.getFqName(), TickProfiler.Phase.ENTITIES, profilerStart);
         this.B.c("blockEntities");
+        profilerStart = TickProfiler.start();
         this.L = true;
         Iterator iterator = this.i.iterator();
 
@@ -1222,6 +1239,7 @@ public abstract class World implements IBlockAccess {
                 BlockPos blockpos = tileentity.v();
 
                 if (this.e(blockpos) && this.M.a(blockpos)) {
+                    long tileEntityStart = TickProfiler.startSampled(); // CanaryMod: profiler
                     try {
                         ((IUpdatePlayerListBox) tileentity).c();
                     }
@@ -1232,6 +1250,7 @@ public abstract class World implements IBlockAccess {
                         tileentity.a(crashreportcategory1);
                         throw new ReportedException(crashreport1);
                     }
+                    TickProfiler.tileEntity(tileentity.getClass(), tileEntityStart);
                 }
             }
 
@@ -1272,6 +1291,7 @@ public abstract class World implements IBlockAccess {
             this.a.clear();
         }
 
+        TickProfiler.phase(this.canaryDimension.getFqName(), TickProfiler.Phase.TILE_ENTITIES, profilerStart);
         this.B.b();
         this.B.b();
     }
@@ -2791,6 +2811,39 @@ public abstract class World implements IBlockAccess {
         this.canaryDimension = dim;
     }
 
+    /**
+     * Gets the index telling the mob spawners of this world whether a player is in their activation range
+     *
+     * @return the spawner activation index
+     */
+    public SpawnerActivationIndex getSpawnerActivationIndex() {
+        if (this.spawnerIndex == null) {
+            this.spawnerIndex = new SpawnerActivationIndex(this);
+        }
+        return this.spawnerIndex;
+    }
+
+    /**
+     * Gets the watch telling caches of the block changes in this world
+     *
+     * @return the block watch
+     */
+    public BlockWatch getBlockWatch() {
+        return this.blockWatch;
+    }
+
+    /**
+     * Gets the queue of light checks this world defers
+     *
+     * @return the lighting queue
+     */
+    public LightingQueue getLightingQueue() {
+        if (this.lighting == null) {
+            this.lighting = new LightingQueue(this);
+        }
+        return this.lighting;
+    }
+
     /**
      * Checks if the Entity is allowed to spawn based on the world configuration
      *
@@ -2800,37 +2853,37 @@ public abstract class World implements IBlockAccess {
      * @return true if can spawn; false if not
      */
     protected final boolean canSpawn(Entity entity) {
-        WorldConfiguration world_cfg = Configuration.getWorldConfig(this.canaryDimension.getFqName());
+        WorldConfigSnapshot world_cfg = this.canaryDimension.getConfigSnapshot();
         String fqEntityName = entity.getCanaryEntity().getFqName();
         if (entity instanceof EntityAnimal || entity instanceof EntityWaterMob || entity instanceof EntityAmbientCreature) {
-            if (!world_cfg.canSpawnAnimals()) {
+            if (!world_cfg.spawnAnimals) {
                 return false;
             }
             else if (entity instanceof EntityWaterMob) {
-                if (!world_cfg.getSpawnableWaterAnimals().contains(fqEntityName)) {
+                if (!world_cfg.spawnableWaterAnimals.contains(fqEntityName)) {
                     return false;
                 }
             }
-            else if (!world_cfg.getSpawnableAnimals().contains(fqEntityName)) {
+            else if (!world_cfg.spawnableAnimals.contains(fqEntityName)) {
                 return false;
             }
         }
         else if (entity instanceof IMob) {
-            if (!world_cfg.canSpawnMonsters()) {
+            if (!world_cfg.spawnMonsters) {
                 return false;
             }
-            else if (!world_cfg.getSpawnableMobs().contains(fqEntityName)) {
+            else if (!world_cfg.spawnableMobs.contains(fqEntityName)) {
                 return false;
             }
         }
-        else if (entity instanceof INpc && !world_cfg.canSpawnVillagers()) {
+        else if (entity instanceof INpc && !world_cfg.spawnVillagers) {
             return false;
         }
         else if (entity instanceof EntityGolem) {
-            if (!world_cfg.canSpawnGolems()) {
+            if (!world_cfg.spawnGolems) {
                 return false;
             }
-            else if (!world_cfg.getSpawnableGolems().contains(fqEntityName)) {
+            else if (!world_cfg.spawnableGolems.contains(fqEntityName)) {
                 return false;
             }
         }
@@ -9,7 +9,9 @@ import net.canarymod.Canary;
 import net.canarymod.api.CanaryEntityTracker;
 import net.canarymod.api.CanaryPlayerManager;
 import net.canarymod.api.scoreboard.CanaryScoreboard;
+import net.canarymod.api.world.ChunkPayloadCache;
 import net.canarymod.hook.world.WeatherChangeHook;
+import net.canarymod.profiler.TickProfiler;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockEventData;
 import net.minecraft.block.material.Material;
@@ -95,6 +97,7 @@ public class WorldServer extends World implements IThreadListener {
     private int T;
     private static final List U = Lists.newArrayList(new WeightedRandomChestContent[]{new WeightedRandomChestContent(Items.y, 0, 1, 3, 10), new WeightedRandomChestContent(Item.a(Blocks.f), 0, 1, 3, 10), new WeightedRandomChestContent(Item.a(Blocks.r), 0, 1, 3, 10), new WeightedRandomChestContent(Items.t, 0, 1, 1, 3), new WeightedRandomChestContent(Items.p, 0, 1, 1, 5), new WeightedRandomChestContent(Items.s, 0, 1, 1, 3), new WeightedRandomChestContent(Items.o, 0, 1, 1, 5), new WeightedRandomChestContent(Items.e, 0, 2, 3, 5), new WeightedRandomChestContent(Items.P, 0, 2, 3, 3), new WeightedRandomChestContent(Item.a(Blocks.s), 0, 1, 3, 10)});
     private List V = Lists.newArrayList();
+    private final ChunkPayloadCache chunkPayloadCache = new ChunkPayloadCache(this); // CanaryMod: shared chunk packets
 
     public WorldServer(MinecraftServer minecraftserver, ISaveHandler isavehandler, WorldInfo worldinfo, int i0, Profiler profiler) {
         // TODO: WorldProvider: Needs changing so it would get any WorldProvider. Might need to make a mapping/register
@@ -175,7 +178,9 @@ public class WorldServer extends World implements IThreadListener {
         }
 
         this.B.c("chunkSource");
+        long profilerStart = TickProfiler.start(); // CanaryMod: profiler
         this.v.d();
+        TickProfiler.phase(this.canaryDimension.getFqName(), TickProfiler.Phase.CHUNK_IO, profilerStart);
         int i1 = this.a(1.0F);
 
         if (i1 != this.ab()) {
@@ -188,9 +193,19 @@ public class WorldServer extends World implements IThreadListener {
         }
 
         this.B.c("tickPending");
+        profilerStart = TickProfiler.start();
         this.a(false);
+        TickProfiler.phase(this.canaryDimension.getFqName(), TickProfiler.Phase.SCHEDULED_TICKS, profilerStart);
         this.B.c("tickBlocks");
+        profilerStart = TickProfiler.start();
         this.h();
+        TickProfiler.phase(this.canaryDimension.getFqName(), TickProfiler.Phase.BLOCK_TICKS, profilerStart);
+        // CanaryMod: deferred light checks, before the chunk map sends changed chunks
+        this.B.c("lighting");
+        profilerStart = TickProfiler.start();
+        this.getLightingQueue().process();
+        TickProfiler.phase(this.canaryDimension.getFqName(), TickProfiler.Phase.LIGHTING, profilerStart);
+        //
         this.B.c("chunkMap");
         this.K.b();
         this.B.c("village");
@@ -312,6 +327,8 @@ public class WorldServer extends World implements IThreadListener {
         else {
             int i0 = 0;
             int i1 = 0;
+            // CanaryMod: read the random tick speed once per tick, not once per chunk
+            int randomTickSpeed = this.Q().c("randomTickSpeed");
 
             for (Iterator iterator1 = this.E.iterator(); iterator1.hasNext(); this.B.b()) {
                 ChunkCoordIntPair chunkcoordintpair1 = (ChunkCoordIntPair) iterator1.next();
@@ -358,7 +375,7 @@ public class WorldServer extends World implements IThreadListener {
                 }
 
                 this.B.c("tickBlocks");
-                i4 = this.Q().c("randomTickSpeed");
+                i4 = randomTickSpeed;
                 if (i4 > 0) {
                     ExtendedBlockStorage[] aextendedblockstorage = chunk.h();
                     int i5 = aextendedblockstorage.length;
@@ -366,7 +383,10 @@ public class WorldServer extends World implements IThreadListener {
                     for (int i6 = 0; i6 < i5; ++i6) {
                         ExtendedBlockStorage extendedblockstorage = aextendedblockstorage[i6];
 
+                        // The storage counts its randomly ticking blocks as they are set, sections without any are skipped
                         if (extendedblockstorage != null && extendedblockstorage.b()) {
+                            int sectionY = extendedblockstorage.d();
+
                             for (int i7 = 0; i7 < i4; ++i7) {
                                 this.m = this.m * 3 + 1013904223;
                                 int i8 = this.m >> 2;
@@ -375,13 +395,13 @@ public class WorldServer extends World implements IThreadListener {
                                 int i11 = i8 >> 16 & 15;
 
                                 ++i1;
-                                BlockPos blockpos2 = new BlockPos(i9 + i2, i11 + extendedblockstorage.d(), i10 + i3);
                                 IBlockState iblockstate = extendedblockstorage.a(i9, i11, i10);
                                 Block block = iblockstate.c();
 
                                 if (block.w()) {
                                     ++i0;
-                                    block.a((World) this, blockpos2, iblockstate, this.s);
+                                    // CanaryMod: only samples that tick need a position
+                                    block.a((World) this, new BlockPos(i9 + i2, i11 + sectionY, i10 + i3), iblockstate, this.s);
                                 }
                             }
                         }
@@ -1018,6 +1038,15 @@ public class WorldServer extends World implements IThreadListener {
         return K.getPlayerManager();
     }
 
+    /**
+     * Get the cache of ready-made chunk packets for this dimension
+     *
+     * @return the chunk payload cache
+     */
+    public ChunkPayloadCache getChunkPayloadCache() {
+        return chunkPayloadCache;
+    }
+
     public float getRainStrength() {
         return this.p;
     }
@@ -60,6 +60,8 @@ public class Chunk {
     private int v;
     private ConcurrentLinkedQueue w;
     private CanaryChunk canaryChunk; // CanaryMod: Chunk wrapper
+    private volatile int modCount; // CanaryMod: bumped whenever the chunk is marked modified
+    private long watchedSince = -1L; // CanaryMod: world time players started watching, -1 if unwatched
 
     public Chunk(World world, int i0, int i1) {
         canaryChunk = new CanaryChunk(this); // CanaryMod: wrap chunk
@@ -193,6 +195,7 @@ public class Chunk {
         }
 
         this.q = true;
+        ++this.modCount; // CanaryMod: chunk payload versioning
     }
 
     private void d(int i0, int i1) {
@@ -260,6 +263,7 @@ public class Chunk {
             }
 
             this.q = true;
+            ++this.modCount; // CanaryMod: chunk payload versioning
         }
     }
 
@@ -362,6 +366,7 @@ public class Chunk {
             }
 
             this.q = true;
+            ++this.modCount; // CanaryMod: chunk payload versioning
         }
     }
 
@@ -533,6 +538,7 @@ public class Chunk {
             }
 
             extendedblockstorage.a(i0, i1 & 15, i2, iblockstate);
+            ++this.modCount; // CanaryMod: chunk payload versioning (after the write)
             if (block1 != block) {
                 if (!this.i.D) {
                     block1.b(this.i, blockpos, iblockstate1);
@@ -627,6 +633,7 @@ public class Chunk {
         else if (enumskyblock == EnumSkyBlock.BLOCK) {
             extendedblockstorage.b(i1, i2 & 15, i3, i0);
         }
+        ++this.modCount; // CanaryMod: chunk payload versioning (after the write)
     }
 
     public int a(BlockPos blockpos, int i0) {
@@ -793,6 +800,7 @@ public class Chunk {
 
     public void e() {
         this.q = true;
+        ++this.modCount; // CanaryMod: chunk payload versioning
     }
 
     public void a(Entity entity, AxisAlignedBB axisalignedbb, List list, Predicate predicate) {
@@ -1259,11 +1267,15 @@ public class Chunk {
     }
 
     public long w() {
-        return this.u;
+        // CanaryMod: include the time accrued since players started watching
+        return this.watchedSince < 0L ? this.u : this.u + this.i.K() - this.watchedSince;
     }
 
     public void c(long i0) {
         this.u = i0;
+        if (this.watchedSince >= 0L) { // CanaryMod: restart the watched period
+            this.watchedSince = this.i.K();
+        }
     }
 
     public static enum EnumCreateEntityType {
@@ -1293,5 +1305,32 @@ public class Chunk {
     public boolean hasEntities() {
         return this.p;
     }
+
+    /**
+     * Gets the number of times this chunk's block, light or tile entity data has been modified.
+     * The count only ever grows, and is used to tell whether a cached chunk payload is still current.
+     *
+     * @return the modification count
+     */
+    public int getModificationCount() {
+        return this.modCount;
+    }
+
+    /**
+     * Marks whether players are watching this chunk.
+     * The inhabited time accrues lazily while watched, so watched chunks need no periodic update.
+     *
+     * @param watched
+     *         true when the first player starts watching, false when the last one stops
+     */
+    public void setWatched(boolean watched) {
+        if (watched && this.watchedSince < 0L) {
+            this.watchedSince = this.i.K();
+        }
+        else if (!watched && this.watchedSince >= 0L) {
+            this.u += this.i.K() - this.watchedSince;
+            this.watchedSince = -1L;
+        }
+    }
     // CanaryMod end
 }
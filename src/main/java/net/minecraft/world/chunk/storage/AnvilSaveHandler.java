@@ -1,6 +1,7 @@
 package net.minecraft.world.chunk.storage;
 
 import net.canarymod.api.world.DimensionType;
+import net.canarymod.api.world.PrefetchingChunkLoader;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.world.WorldProvider;
 import net.minecraft.world.storage.SaveHandler;
@@ -19,7 +20,8 @@ public class AnvilSaveHandler extends SaveHandler {
         // CanaryMod changed the whole thing since we have recollection of the world type we're serving.
         // This means we can spare us the checks for instanceof generator
         // And just put together the proper save path
-        return new AnvilChunkLoader(new File(getWorldBaseDir(), getBaseName() + "/" + getBaseName() + "_" + this.type.getName()));
+        // CanaryMod: a loader that also takes the chunks read ahead by the spawn area preparer
+        return new PrefetchingChunkLoader(new File(getWorldBaseDir(), getBaseName() + "/" + getBaseName() + "_" + this.type.getName()));
     }
 
     public void a(WorldInfo worldinfo, NBTTagCompound nbttagcompound) {
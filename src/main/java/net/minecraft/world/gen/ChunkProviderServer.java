@@ -212,6 +212,7 @@ public class ChunkProviderServer implements IChunkProvider {
     public void b(Chunk chunk) {
         if (this.f != null) {
             try {
+                this.i.getLightingQueue().resolve(chunk.a, chunk.b); // CanaryMod: never save light that is still queued
                 chunk.b(this.i.K());
                 this.f.a(this.i, chunk);
             }
@@ -294,6 +295,7 @@ public class ChunkProviderServer implements IChunkProvider {
                         }
                         //
                         chunk.d();
+                        this.i.getChunkPayloadCache().invalidate(chunk.a, chunk.b); // CanaryMod: drop shared packet
                         this.b(chunk);
                         this.a(chunk);
                         this.g.d(olong.longValue());
@@ -37,6 +37,9 @@ public class MapData extends WorldSavedData {
     public boolean playersUpdating = true;
     public boolean isBroken = false;
     public transient String worldName = "";
+    private transient World matchedWorld; // the world last found to be the one named by worldName
+    private transient String matchedName;
+    private int version; // bumped whenever colours or decorations change
     //
 
     public MapData(String s0) {
@@ -107,7 +110,7 @@ public class MapData extends WorldSavedData {
 
     public void a(EntityPlayer entityplayer, ItemStack itemstack) {
         // CanaryMod: Check mapdata for mapUpdating and fix for multiworld causing overriding maps
-        if (!playersUpdating || !worldName.equals(entityplayer.o.getCanaryWorld().getFqName()) || isBroken) {
+        if (!playersUpdating || !isMapWorld(entityplayer.o) || isBroken) {
             return;
         }
         if (!this.i.containsKey(entityplayer)) {
@@ -117,8 +120,8 @@ public class MapData extends WorldSavedData {
             this.g.add(mapdata_mapinfo);
         }
 
-        if (!entityplayer.bg.c(itemstack)) {
-            this.h.remove(entityplayer.d_());
+        if (!entityplayer.bg.c(itemstack) && this.h.remove(entityplayer.d_()) != null) {
+            ++this.version; // CanaryMod
         }
 
         for (int i0 = 0; i0 < this.g.size(); ++i0) {
@@ -158,7 +161,7 @@ public class MapData extends WorldSavedData {
 
     private void a(int i0, World world, String s0, double d0, double d1, double d2) {
         // CanaryMod: Check mapdata for mapUpdating and fix for multiworld causing overriding maps
-        if (!mapUpdating || !worldName.equals(world.getCanaryWorld().getFqName()) || isBroken) {
+        if (!mapUpdating || !isMapWorld(world) || isBroken) {
             return;
         }
         int i1 = 1 << this.e;
@@ -180,7 +183,9 @@ public class MapData extends WorldSavedData {
         }
         else {
             if (Math.abs(f0) >= 320.0F || Math.abs(f1) >= 320.0F) {
-                this.h.remove(s0);
+                if (this.h.remove(s0) != null) {
+                    ++this.version; // CanaryMod
+                }
                 return;
             }
 
@@ -203,7 +208,11 @@ public class MapData extends WorldSavedData {
             }
         }
 
-        this.h.put(s0, new Vec4b((byte) i0, b0, b1, b3));
+        Vec4b vec4b = new Vec4b((byte) i0, b0, b1, b3);
+
+        if (!vec4b.equals(this.h.put(s0, vec4b))) {
+            ++this.version; // CanaryMod: only a moved or new decoration is a change
+        }
     }
 
     public Packet a(ItemStack itemstack, World world, EntityPlayer entityplayer) {
@@ -214,6 +223,7 @@ public class MapData extends WorldSavedData {
 
     public void a(int i0, int i1) {
         super.c();
+        ++this.version; // CanaryMod
         Iterator iterator = this.g.iterator();
 
         while (iterator.hasNext()) {
@@ -225,7 +235,7 @@ public class MapData extends WorldSavedData {
 
     public MapData.MapInfo a(EntityPlayer entityplayer) {
         // CanaryMod: Check mapdata for mapUpdating and fix for multiworld causing overriding maps
-        if (!playersUpdating || !worldName.equals(entityplayer.o.getCanaryWorld().getFqName()) || isBroken) {
+        if (!playersUpdating || !isMapWorld(entityplayer.o) || isBroken) {
             return null;
         }
         MapData.MapInfo mapdata_mapinfo = (MapData.MapInfo) this.i.get(entityplayer);
@@ -239,6 +249,36 @@ public class MapData extends WorldSavedData {
         return mapdata_mapinfo;
     }
 
+    /**
+     * Checks whether the given world is the one this map belongs to.
+     * The names are compared once per world, after that the world itself is.
+     *
+     * @param world
+     *         the world to check
+     *
+     * @return true if the map belongs to the world
+     */
+    public boolean isMapWorld(World world) {
+        if (world == matchedWorld && worldName == matchedName) {
+            return true;
+        }
+        if (worldName.equals(world.getCanaryWorld().getFqName())) {
+            matchedWorld = world;
+            matchedName = worldName;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the version of this map's contents, which changes whenever its colours or decorations do
+     *
+     * @return the version
+     */
+    public int getVersion() {
+        return version;
+    }
+
     public class MapInfo {
 
         public final EntityPlayer a;
@@ -249,6 +289,7 @@ public class MapData extends WorldSavedData {
         private int h = 127;
         private int i;
         public int b;
+        private int sentVersion = -1; // CanaryMod: the map version this viewer last got
 
         public MapInfo(EntityPlayer p_i2138_2_) {
             this.a = p_i2138_2_;
@@ -257,10 +298,16 @@ public class MapData extends WorldSavedData {
         public Packet a(ItemStack p_a_1_) {
             if (this.d) {
                 this.d = false;
+                this.sentVersion = MapData.this.version; // CanaryMod
                 return new S34PacketMaps(p_a_1_.i(), MapData.this.e, MapData.this.h.values(), MapData.this.f, this.e, this.f, this.g + 1 - this.e, this.h + 1 - this.f);
             }
             else {
-                return this.i++ % 5 == 0 ? new S34PacketMaps(p_a_1_.i(), MapData.this.e, MapData.this.h.values(), MapData.this.f, 0, 0, 0, 0) : null;
+                // CanaryMod: send the decorations only if anything changed since this viewer's last update
+                if (this.i++ % 5 != 0 || this.sentVersion == MapData.this.version) {
+                    return null;
+                }
+                this.sentVersion = MapData.this.version;
+                return new S34PacketMaps(p_a_1_.i(), MapData.this.e, MapData.this.h.values(), MapData.this.f, 0, 0, 0, 0);
             }
         }
 
@@ -1,5 +1,6 @@
 package net.minecraft.world.storage;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import net.canarymod.api.nbt.CanaryCompoundTag;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.nbt.CompressedStreamTools;
@@ -13,7 +14,13 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 public class SaveHandler implements ISaveHandler, IPlayerFileData {
 
@@ -26,6 +33,12 @@ public class SaveHandler implements ISaveHandler, IPlayerFileData {
     private final String worldName; // CanaryMod renamed from f
     protected net.canarymod.api.world.DimensionType type;
 
+    // CanaryMod: player data is captured on the calling thread and compressed and written by a background thread.
+    // A file holds its latest data here until that is on disk, so later saves replace earlier ones and loads see it.
+    private static final ExecutorService playerWriter = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("Player Data Writer").setDaemon(true).build());
+    private static final Map<File, NBTTagCompound> pendingPlayers = new HashMap<File, NBTTagCompound>();
+    //
+
     public SaveHandler(File file1, String s0, boolean flag0, net.canarymod.api.world.DimensionType type) {
         // CanaryMod refactored for more flexible folder structure
         this.worldDir = new File(file1, s0 + "/" + s0 + "_" + type.getName());
@@ -240,15 +253,8 @@ public class SaveHandler implements ISaveHandler, IPlayerFileData {
             NBTTagCompound nbttagcompound = new NBTTagCompound();
 
             entityplayer.e(nbttagcompound);
-            File file1 = new File(this.globalPlayerFilesDir, entityplayer.aJ().toString() + ".dat.tmp");
-            File file2 = new File(this.globalPlayerFilesDir, entityplayer.aJ().toString() + ".dat");
-
-            CompressedStreamTools.a(nbttagcompound, (OutputStream) (new FileOutputStream(file1)));
-            if (file2.exists()) {
-                file2.delete();
-            }
-
-            file1.renameTo(file2);
+            // CanaryMod: written in the background, from a copy since item tags are shared with the live items
+            queuePlayerData(new File(this.globalPlayerFilesDir, entityplayer.aJ().toString() + ".dat"), (NBTTagCompound) nbttagcompound.b());
         }
         catch (Exception exception) {
             a.warn("Failed to save player data for " + entityplayer.d_());
@@ -262,7 +268,8 @@ public class SaveHandler implements ISaveHandler, IPlayerFileData {
         try {
             File file1 = new File(this.globalPlayerFilesDir, entityplayer.aJ().toString() + ".dat");
 
-            if (file1.exists() && file1.isFile()) {
+            nbttagcompound = getPendingPlayerData(file1); // CanaryMod: data not written yet is the latest
+            if (nbttagcompound == null && file1.exists() && file1.isFile()) {
                 nbttagcompound = CompressedStreamTools.a((InputStream) (new FileInputStream(file1)));
             }
         }
@@ -284,7 +291,8 @@ public class SaveHandler implements ISaveHandler, IPlayerFileData {
         try {
             File file1 = new File(this.globalPlayerFilesDir, uuid.toString() + ".dat");
 
-            if (file1.exists() && file1.isFile()) {
+            nbttagcompound = getPendingPlayerData(file1); // CanaryMod: data not written yet is the latest
+            if (nbttagcompound == null && file1.exists() && file1.isFile()) {
                 nbttagcompound = CompressedStreamTools.a((InputStream) (new FileInputStream(file1)));
             }
         }
@@ -328,23 +336,103 @@ public class SaveHandler implements ISaveHandler, IPlayerFileData {
     }
 
     // CanaryMod enable writing dat files from player name and a given base tag
-    // This is a copy of this.a(EntityPlayer and might need adjustments accordingly!)
-    // TODO UUID
     public void writePlayerNbt(UUID uuid, CanaryCompoundTag tag) {
         try {
-            NBTTagCompound nbttagcompound = tag.getHandle();
+            // A copy, the caller may keep editing its tag
+            queuePlayerData(new File(this.globalPlayerFilesDir, uuid.toString() + ".dat"), (NBTTagCompound) tag.getHandle().b());
+        }
+        catch (Exception exception) {
+            a.warn("Failed to save player data for " + uuid.toString());
+        }
+    }
 
-            File file1 = new File(this.worldDir, uuid.toString() + ".dat.tmp");
-            File file2 = new File(this.worldDir, uuid.toString() + ".dat");
+    private static void queuePlayerData(final File file, NBTTagCompound nbttagcompound) {
+        synchronized (pendingPlayers) {
+            if (pendingPlayers.put(file, nbttagcompound) != null) {
+                // A write of this file is queued already and will pick the new data up
+                return;
+            }
+        }
+        Runnable write = new Runnable() {
+            @Override
+            public void run() {
+                NBTTagCompound current;
 
-            CompressedStreamTools.a(nbttagcompound, (OutputStream) (new FileOutputStream(file1)));
-            if (file2.exists()) {
-                file2.delete();
+                synchronized (pendingPlayers) {
+                    current = pendingPlayers.get(file);
+                }
+                while (current != null) {
+                    writePlayerFile(file, current);
+                    synchronized (pendingPlayers) {
+                        NBTTagCompound latest = pendingPlayers.get(file);
+
+                        if (latest == current) {
+                            pendingPlayers.remove(file);
+                            latest = null;
+                        }
+                        current = latest;
+                    }
+                }
+            }
+        };
+
+        try {
+            playerWriter.execute(write);
+        }
+        catch (RejectedExecutionException rejectedexecutionexception) {
+            // Shutting down, write it right away
+            write.run();
+        }
+    }
+
+    private static void writePlayerFile(File file, NBTTagCompound nbttagcompound) {
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+            CompressedStreamTools.a(nbttagcompound, (OutputStream) bytes);
+
+            FileOutputStream fileoutputstream = new FileOutputStream(temp);
+            try {
+                fileoutputstream.write(bytes.toByteArray());
+                fileoutputstream.getFD().sync();
+            }
+            finally {
+                fileoutputstream.close();
+            }
+            if (!temp.renameTo(file)) {
+                // Some platforms won't rename over an existing file
+                file.delete();
+                if (!temp.renameTo(file)) {
+                    throw new IOException("Couldn't move " + temp + " to " + file);
+                }
             }
-            file1.renameTo(file2);
         }
         catch (Exception exception) {
-            a.warn("Failed to save player data for " + uuid.toString());
+            a.warn("Failed to save player data to " + file, exception);
+        }
+    }
+
+    private static NBTTagCompound getPendingPlayerData(File file) {
+        synchronized (pendingPlayers) {
+            NBTTagCompound nbttagcompound = pendingPlayers.get(file);
+
+            return nbttagcompound == null ? null : (NBTTagCompound) nbttagcompound.b();
+        }
+    }
+
+    /**
+     * Waits for the player data writes queued so far to reach the disk
+     */
+    public static void awaitPlayerWrites() {
+        playerWriter.shutdown();
+        try {
+            if (!playerWriter.awaitTermination(30L, TimeUnit.SECONDS)) {
+                a.warn("Timed out waiting for player data to be written");
+            }
+        }
+        catch (InterruptedException interruptedexception) {
+            Thread.currentThread().interrupt();
         }
     }
     // CanaryMod end
@@ -0,0 +1,216 @@
+package net.canarymod.api.world.blocks;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Liquid spread search testing against the unmemoized search it replaces
+ */
+public class LiquidSpreadSearchTest {
+    private static final int[][] offsets = { { 0, -1 }, { 1, 0 }, { 0, 1 }, { -1, 0 } };
+
+    @Test
+    public void testDropNextToStart() {
+        Field field = new Field(5);
+        field.open[2][1] = true;
+        field.drop[2][1] = true;
+
+        assertEquals("ADJACENT DROP MISMATCH", 1, new LiquidSpreadSearch<Integer>(field).search(field.key(2, 2), 1, -1));
+    }
+
+    @Test
+    public void testNoDropInReach() {
+        Field field = new Field(12);
+        for (int x = 0; x < 12; x++) {
+            field.open[x][5] = true;
+        }
+        field.drop[11][5] = true;
+
+        assertEquals("OUT OF REACH MISMATCH", LiquidSpreadSearch.NONE, new LiquidSpreadSearch<Integer>(field).search(field.key(1, 5), 1, 3));
+        assertEquals("IN REACH MISMATCH", 4, new LiquidSpreadSearch<Integer>(field).search(field.key(7, 5), 1, 3));
+    }
+
+    @Test
+    public void testMatchesRecursiveSearch() {
+        Random random = new Random(33L);
+
+        for (int round = 0; round < 500; round++) {
+            Field field = new Field(14);
+            for (int x = 0; x < 14; x++) {
+                for (int z = 0; z < 14; z++) {
+                    field.open[x][z] = random.nextInt(10) < 7;
+                    field.drop[x][z] = field.open[x][z] && random.nextInt(12) == 0;
+                }
+            }
+            // One search instance for the whole field, as between block changes in a world
+            LiquidSpreadSearch<Integer> search = new LiquidSpreadSearch<Integer>(field);
+
+            for (int query = 0; query < 40; query++) {
+                int x = 2 + random.nextInt(10);
+                int z = 2 + random.nextInt(10);
+                int depth = 1 + random.nextInt(4);
+                int from = random.nextInt(5) - 1;
+
+                assertEquals("ROUND " + round + " QUERY " + query + " MISMATCH", field.recursive(x, z, depth, from), search.search(field.key(x, z), depth, from));
+            }
+        }
+    }
+
+    @Test
+    public void testFlowEndsLikeRecursiveSearch() {
+        Random random = new Random(35L);
+
+        for (int round = 0; round < 200; round++) {
+            long seed = random.nextLong();
+            Field memoized = flow(seed, true);
+            Field recursive = flow(seed, false);
+
+            for (int x = 0; x < memoized.size; x++) {
+                assertTrue("ROUND " + round + " ROW " + x + " MISMATCH", Arrays.equals(recursive.wet[x], memoized.wet[x]));
+            }
+        }
+    }
+
+    // Lets liquid spread from the middle of a field while cells change, as flowing liquids update in a world
+    private static Field flow(long seed, boolean memoized) {
+        Random random = new Random(seed);
+        Field field = new Field(20);
+        for (int x = 0; x < 20; x++) {
+            for (int z = 0; z < 20; z++) {
+                field.open[x][z] = random.nextInt(10) < 7;
+                field.drop[x][z] = field.open[x][z] && random.nextInt(16) == 0;
+            }
+        }
+        field.open[10][10] = true;
+        field.drop[10][10] = false;
+        field.wet[10][10] = true;
+
+        LiquidSpreadSearch<Integer> search = new LiquidSpreadSearch<Integer>(field);
+        for (int tick = 0; tick < 10; tick++) {
+            List<Integer> flowing = new ArrayList<Integer>();
+            for (int x = 0; x < 20; x++) {
+                for (int z = 0; z < 20; z++) {
+                    // Liquid on a drop falls instead of spreading
+                    if (field.wet[x][z] && !field.drop[x][z]) {
+                        flowing.add(field.key(x, z));
+                    }
+                }
+            }
+            for (Integer node : flowing) {
+                int best = LiquidSpreadSearch.NONE;
+                List<Integer> towards = new ArrayList<Integer>();
+                for (int side = 0; side < 4; side++) {
+                    Integer next = field.neighbour(node, side);
+                    if (!field.isOpen(next)) {
+                        continue;
+                    }
+                    int found = field.isDrop(next) ? 0 : memoized ? search.search(next, 1, (side + 2) & 3) : field.recursive(field.x(next), field.z(next), 1, (side + 2) & 3);
+                    if (found < best) {
+                        towards.clear();
+                    }
+                    if (found <= best) {
+                        towards.add(next);
+                        best = found;
+                    }
+                }
+                for (Integer next : towards) {
+                    field.wet[field.x(next)][field.z(next)] = true;
+                    search = changed(field, search, next);
+                }
+            }
+            // Blocks placed and broken elsewhere
+            for (int change = 0; change < 3; change++) {
+                int x = random.nextInt(20);
+                int z = random.nextInt(20);
+                if (random.nextBoolean()) {
+                    field.open[x][z] = !field.open[x][z];
+                }
+                else {
+                    field.drop[x][z] = field.open[x][z] && !field.drop[x][z];
+                }
+                search = changed(field, search, field.key(x, z));
+            }
+        }
+        return field;
+    }
+
+    // Drops the search once a cell it looked at changed, as the world's block watch does
+    private static LiquidSpreadSearch<Integer> changed(Field field, LiquidSpreadSearch<Integer> search, Integer node) {
+        return search.hasRead(node) ? new LiquidSpreadSearch<Integer>(field) : search;
+    }
+
+    /**
+     * A flat field of open and blocked cells, walled in at the edges
+     */
+    private static final class Field implements LiquidSpreadSearch.Terrain<Integer> {
+        final int size;
+        final boolean[][] open;
+        final boolean[][] drop;
+        final boolean[][] wet;
+
+        Field(int size) {
+            this.size = size;
+            this.open = new boolean[size][size];
+            this.drop = new boolean[size][size];
+            this.wet = new boolean[size][size];
+        }
+
+        Integer key(int x, int z) {
+            return (x + 100) * 1000 + z + 100;
+        }
+
+        int x(Integer node) {
+            return node / 1000 - 100;
+        }
+
+        int z(Integer node) {
+            return node % 1000 - 100;
+        }
+
+        @Override
+        public Integer neighbour(Integer node, int side) {
+            return key(x(node) + offsets[side][0], z(node) + offsets[side][1]);
+        }
+
+        @Override
+        public boolean isOpen(Integer node) {
+            int x = x(node), z = z(node);
+            return x >= 0 && z >= 0 && x < size && z < size && open[x][z] && !wet[x][z];
+        }
+
+        @Override
+        public boolean isDrop(Integer node) {
+            return drop[x(node)][z(node)];
+        }
+
+        // The search as flowing liquids ran it before memoization
+        int recursive(int x, int z, int i0, int from) {
+            int i1 = 1000;
+            for (int side = 0; side < 4; side++) {
+                if (side == from) {
+                    continue;
+                }
+                Integer next = neighbour(key(x, z), side);
+                if (isOpen(next)) {
+                    if (isDrop(next)) {
+                        return i0;
+                    }
+                    if (i0 < 4) {
+                        int i2 = recursive(x(next), z(next), i0 + 1, (side + 2) & 3);
+                        if (i2 < i1) {
+                            i1 = i2;
+                        }
+                    }
+                }
+            }
+            return i1;
+        }
+    }
+}
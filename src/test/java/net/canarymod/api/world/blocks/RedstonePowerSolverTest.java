@@ -0,0 +1,398 @@
+package net.canarymod.api.world.blocks;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Redstone power solver testing against the stepwise wire update it replaces
+ */
+public class RedstonePowerSolverTest {
+
+    @Test
+    public void testLineFromSource() {
+        Grid grid = new Grid(20, 1);
+        for (int x = 0; x < 20; x++) {
+            grid.wire[x][0] = true;
+        }
+        grid.external[0][0] = 15;
+        grid.apply(RedstonePowerSolver.solve(grid, Collections.singleton(grid.key(0, 0)), 15));
+
+        assertArrayEquals("LINE MISMATCH", new int[]{ 15, 14, 13, 12, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1, 0, 0, 0, 0, 0 }, grid.row(0));
+    }
+
+    @Test
+    public void testSourceRemoved() {
+        Grid grid = new Grid(20, 1);
+        for (int x = 0; x < 20; x++) {
+            grid.wire[x][0] = true;
+        }
+        grid.external[0][0] = 15;
+        grid.settle();
+        grid.external[0][0] = 0;
+        grid.apply(RedstonePowerSolver.solve(grid, Collections.singleton(grid.key(0, 0)), 15));
+
+        assertArrayEquals("UNPOWERED LINE MISMATCH", new int[20], grid.row(0));
+    }
+
+    @Test
+    public void testLoopDecays() {
+        Grid grid = new Grid(3, 3);
+        for (int x = 0; x < 3; x++) {
+            for (int y = 0; y < 3; y++) {
+                grid.wire[x][y] = x != 1 || y != 1;
+                grid.power[x][y] = grid.wire[x][y] ? 7 : 0;
+            }
+        }
+        grid.apply(RedstonePowerSolver.solve(grid, Collections.singleton(grid.key(0, 0)), 15));
+
+        for (int y = 0; y < 3; y++) {
+            assertArrayEquals("LOOP MISMATCH", new int[3], grid.row(y));
+        }
+    }
+
+    @Test
+    public void testFarWiresUntouched() {
+        Grid grid = new Grid(40, 1);
+        for (int x = 0; x < 40; x++) {
+            grid.wire[x][0] = true;
+        }
+        grid.external[39][0] = 15;
+        grid.settle();
+        grid.external[0][0] = 15;
+        RedstonePowerSolver<Integer> solver = RedstonePowerSolver.solve(grid, Collections.singleton(grid.key(0, 0)), 15);
+
+        assertEquals("REGION SIZE MISMATCH", 17, solver.getRegion().size());
+        grid.apply(solver);
+        Grid expected = grid.copy();
+        expected.settle();
+        assertArrayEquals("TWO SOURCE LINE MISMATCH", expected.row(0), grid.row(0));
+    }
+
+    @Test
+    public void testMatchesStepwiseUpdates() {
+        Random random = new Random(8L);
+
+        for (int round = 0; round < 200; round++) {
+            Grid grid = new Grid(16, 16);
+            for (int x = 0; x < 16; x++) {
+                for (int y = 0; y < 16; y++) {
+                    grid.wire[x][y] = random.nextInt(10) < 7;
+                    if (grid.wire[x][y] && random.nextInt(30) == 0) {
+                        grid.external[x][y] = 1 + random.nextInt(15);
+                    }
+                }
+            }
+            grid.settle();
+
+            for (int change = 0; change < 10; change++) {
+                int x = random.nextInt(16);
+                int y = random.nextInt(16);
+                if (random.nextBoolean()) {
+                    grid.wire[x][y] = !grid.wire[x][y];
+                    grid.power[x][y] = 0;
+                    grid.external[x][y] = 0;
+                }
+                else if (grid.wire[x][y]) {
+                    grid.external[x][y] = grid.external[x][y] > 0 ? 0 : 1 + random.nextInt(15);
+                }
+                Grid expected = grid.copy();
+                expected.settle();
+                grid.apply(RedstonePowerSolver.solve(grid, Collections.singleton(grid.key(x, y)), 15));
+
+                for (int row = 0; row < 16; row++) {
+                    assertArrayEquals("ROUND " + round + " CHANGE " + change + " MISMATCH", expected.row(row), grid.row(row));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCancelledWireStopsPower() {
+        Grid grid = new Grid(20, 1);
+        for (int x = 0; x < 20; x++) {
+            grid.wire[x][0] = true;
+        }
+        grid.external[0][0] = 15;
+        final List<Integer> asked = new ArrayList<Integer>();
+        grid.apply(RedstonePowerSolver.solve(grid, Collections.singleton(grid.key(0, 0)), 15, new RedstonePowerSolver.Veto<Integer>() {
+            @Override
+            public boolean allow(Integer wire, int from, int to) {
+                asked.add(wire);
+                return wire != 5000;
+            }
+        }));
+
+        assertArrayEquals("POWER PASSED CANCELLED WIRE", new int[]{ 15, 14, 13, 12, 11, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 }, grid.row(0));
+        assertEquals("HOOK ASKED TWICE FOR A WIRE", new HashSet<Integer>(asked).size(), asked.size());
+    }
+
+    @Test
+    public void testCancelledWiresMatchFrozenStepwiseUpdates() {
+        Random random = new Random(9L);
+
+        for (int round = 0; round < 200; round++) {
+            final Grid grid = new Grid(16, 16);
+            for (int x = 0; x < 16; x++) {
+                for (int y = 0; y < 16; y++) {
+                    grid.wire[x][y] = random.nextInt(10) < 7;
+                    if (grid.wire[x][y] && random.nextInt(30) == 0) {
+                        grid.external[x][y] = 1 + random.nextInt(15);
+                    }
+                }
+            }
+            grid.settle();
+
+            final Set<Integer> refusing = new HashSet<Integer>();
+            for (int i = 0; i < 8; i++) {
+                refusing.add(grid.key(random.nextInt(16), random.nextInt(16)));
+            }
+            int x = random.nextInt(16);
+            int y = random.nextInt(16);
+            grid.external[x][y] = grid.wire[x][y] && grid.external[x][y] == 0 ? 15 : 0;
+
+            final Set<Integer> refused = new HashSet<Integer>();
+            RedstonePowerSolver<Integer> solver = RedstonePowerSolver.solve(grid, Collections.singleton(grid.key(x, y)), 15, new RedstonePowerSolver.Veto<Integer>() {
+                @Override
+                public boolean allow(Integer wire, int from, int to) {
+                    if (refusing.contains(wire)) {
+                        refused.add(wire);
+                        return false;
+                    }
+                    return true;
+                }
+            });
+            Grid expected = grid.copy();
+            expected.frozen.addAll(refused);
+            expected.settle();
+            grid.apply(solver);
+
+            for (int row = 0; row < 16; row++) {
+                assertArrayEquals("ROUND " + round + " MISMATCH", expected.row(row), grid.row(row));
+            }
+        }
+    }
+
+    @Test
+    public void testSlopeFeedsOneWay() {
+        Grid grid = new Grid(10, 1);
+        for (int x = 0; x < 10; x++) {
+            grid.wire[x][0] = true;
+        }
+        // The wire at 4 sits below a solid block and cannot take power from the wire up the slope at 5
+        grid.blocked.add(grid.edge(grid.key(5, 0), grid.key(4, 0)));
+
+        grid.external[9][0] = 15;
+        grid.apply(RedstonePowerSolver.solve(grid, Collections.singleton(grid.key(9, 0)), 15));
+        assertArrayEquals("UP SLOPE MISMATCH", new int[]{ 0, 0, 0, 0, 0, 11, 12, 13, 14, 15 }, grid.row(0));
+
+        grid.external[9][0] = 0;
+        grid.apply(RedstonePowerSolver.solve(grid, Collections.singleton(grid.key(9, 0)), 15));
+        grid.external[0][0] = 15;
+        grid.apply(RedstonePowerSolver.solve(grid, Collections.singleton(grid.key(0, 0)), 15));
+        assertArrayEquals("DOWN SLOPE MISMATCH", new int[]{ 15, 14, 13, 12, 11, 10, 9, 8, 7, 6 }, grid.row(0));
+    }
+
+    @Test
+    public void testOneWayMatchesStepwiseUpdates() {
+        Random random = new Random(10L);
+
+        for (int round = 0; round < 200; round++) {
+            Grid grid = new Grid(16, 16);
+            for (int x = 0; x < 16; x++) {
+                for (int y = 0; y < 16; y++) {
+                    grid.wire[x][y] = random.nextInt(10) < 7;
+                    if (grid.wire[x][y] && random.nextInt(30) == 0) {
+                        grid.external[x][y] = 1 + random.nextInt(15);
+                    }
+                    if (random.nextInt(4) == 0) {
+                        grid.blocked.add(grid.edge(grid.key(x, y), grid.key(Math.min(15, x + 1), y)));
+                    }
+                    if (random.nextInt(4) == 0) {
+                        grid.blocked.add(grid.edge(grid.key(x, Math.min(15, y + 1)), grid.key(x, y)));
+                    }
+                }
+            }
+            grid.settle();
+
+            for (int change = 0; change < 10; change++) {
+                int x = random.nextInt(16);
+                int y = random.nextInt(16);
+                if (grid.wire[x][y]) {
+                    grid.external[x][y] = grid.external[x][y] > 0 ? 0 : 1 + random.nextInt(15);
+                }
+                Grid expected = grid.copy();
+                expected.settle();
+                grid.apply(RedstonePowerSolver.solve(grid, Collections.singleton(grid.key(x, y)), 15));
+
+                for (int row = 0; row < 16; row++) {
+                    assertArrayEquals("ROUND " + round + " CHANGE " + change + " MISMATCH", expected.row(row), grid.row(row));
+                }
+            }
+        }
+    }
+
+    /**
+     * A flat field of wires where every wire feeds its four neighbours, unless the feed is blocked one way
+     * as on a slope
+     */
+    private static final class Grid implements RedstonePowerSolver.Network<Integer> {
+        final int width;
+        final int height;
+        final boolean[][] wire;
+        final int[][] power;
+        final int[][] external;
+        // Feeds that do not happen, from one wire to another
+        final Set<Long> blocked = new HashSet<Long>();
+        // Wires that keep their power, as if their change was cancelled
+        final Set<Integer> frozen = new HashSet<Integer>();
+
+        Grid(int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.wire = new boolean[width][height];
+            this.power = new int[width][height];
+            this.external = new int[width][height];
+        }
+
+        Integer key(int x, int y) {
+            return x * 1000 + y;
+        }
+
+        Long edge(Integer from, Integer to) {
+            return (long) from * 1000000L + to;
+        }
+
+        @Override
+        public boolean isWire(Integer node) {
+            int x = node / 1000, y = node % 1000;
+            return x >= 0 && y >= 0 && x < width && y < height && wire[x][y];
+        }
+
+        @Override
+        public Collection<Integer> getLinked(Integer node) {
+            int x = node / 1000, y = node % 1000;
+            List<Integer> linked = new ArrayList<Integer>(4);
+            int[][] offsets = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+            for (int[] offset : offsets) {
+                int nx = x + offset[0], ny = y + offset[1];
+                if (nx >= 0 && ny >= 0 && isWire(key(nx, ny))) {
+                    linked.add(key(nx, ny));
+                }
+            }
+            return linked;
+        }
+
+        @Override
+        public Collection<Integer> getInputs(Integer wire) {
+            List<Integer> inputs = new ArrayList<Integer>(4);
+            for (Integer linked : getLinked(wire)) {
+                if (!blocked.contains(edge(linked, wire))) {
+                    inputs.add(linked);
+                }
+            }
+            return inputs;
+        }
+
+        @Override
+        public int getExternalPower(Integer wire) {
+            return external[wire / 1000][wire % 1000];
+        }
+
+        @Override
+        public int getPower(Integer wire) {
+            return isWire(wire) ? power[wire / 1000][wire % 1000] : 0;
+        }
+
+        void apply(RedstonePowerSolver<Integer> solver) {
+            for (Map.Entry<Integer, Integer> entry : solver.getPower().entrySet()) {
+                power[entry.getKey() / 1000][entry.getKey() % 1000] = entry.getValue();
+            }
+        }
+
+        /**
+         * Repeats the stepwise wire update until nothing changes anymore
+         */
+        void settle() {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int x = 0; x < width; x++) {
+                    for (int y = 0; y < height; y++) {
+                        if (!wire[x][y]) {
+                            power[x][y] = 0;
+                            continue;
+                        }
+                        if (frozen.contains(key(x, y))) {
+                            continue;
+                        }
+                        int i1 = step(power[x][y], external[x][y], maxInput(x, y));
+                        if (i1 != power[x][y]) {
+                            power[x][y] = i1;
+                            changed = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        private int maxInput(int x, int y) {
+            int max = 0;
+            for (Integer input : getInputs(key(x, y))) {
+                max = Math.max(max, getPower(input));
+            }
+            return max;
+        }
+
+        // The update rule of a single wire before the solver
+        private static int step(int i0, int i2, int i3) {
+            int i1 = i0;
+            if (i2 > 0 && i2 > i1 - 1) {
+                i1 = i2;
+            }
+            if (i3 > i1) {
+                i1 = i3 - 1;
+            }
+            else if (i1 > 0) {
+                --i1;
+            }
+            else {
+                i1 = 0;
+            }
+            if (i2 > i1 - 1) {
+                i1 = i2;
+            }
+            return i1;
+        }
+
+        int[] row(int y) {
+            int[] row = new int[width];
+            for (int x = 0; x < width; x++) {
+                row[x] = wire[x][y] ? power[x][y] : 0;
+            }
+            return row;
+        }
+
+        Grid copy() {
+            Grid copy = new Grid(width, height);
+            for (int x = 0; x < width; x++) {
+                copy.wire[x] = wire[x].clone();
+                copy.power[x] = power[x].clone();
+                copy.external[x] = external[x].clone();
+            }
+            copy.blocked.addAll(blocked);
+            copy.frozen.addAll(frozen);
+            return copy;
+        }
+    }
+}
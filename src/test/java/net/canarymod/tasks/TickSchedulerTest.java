@@ -0,0 +1,105 @@
+package net.canarymod.tasks;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tick scheduler testing, with a budget of zero so exactly one task runs per tick
+ */
+public class TickSchedulerTest {
+    private final TaskOwner owner = new TaskOwner() {
+    };
+
+    private Runnable record(final List<String> runs, final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                runs.add(name);
+            }
+        };
+    }
+
+    @Test
+    public void testPriorityAndCarryOver() {
+        TickScheduler scheduler = new TickScheduler(0L);
+        List<String> runs = new ArrayList<String>();
+
+        scheduler.schedule(owner, record(runs, "low"), 0L, TickScheduler.Priority.LOW);
+        scheduler.schedule(owner, record(runs, "normal"), 0L, TickScheduler.Priority.NORMAL);
+        scheduler.schedule(owner, record(runs, "high"), 0L, TickScheduler.Priority.HIGH);
+
+        scheduler.runTasks();
+        assertEquals("BUDGET NOT KEPT", 1, runs.size());
+        assertEquals("PRIORITY NOT KEPT", "high", runs.get(0));
+        scheduler.runTasks();
+        scheduler.runTasks();
+        assertEquals("LEFTOVER NOT CARRIED", 3, runs.size());
+        assertEquals("PRIORITY NOT KEPT", "low", runs.get(2));
+        assertEquals("TASKS LEFT", 0, scheduler.getPendingCount());
+    }
+
+    @Test
+    public void testDelayAndRepeat() {
+        TickScheduler scheduler = new TickScheduler(Long.MAX_VALUE);
+        List<String> runs = new ArrayList<String>();
+
+        scheduler.schedule(owner, record(runs, "delayed"), 3L, TickScheduler.Priority.NORMAL);
+        TickScheduler.Task repeating = scheduler.scheduleRepeating(owner, record(runs, "repeat"), 1L, 2L, TickScheduler.Priority.NORMAL);
+
+        scheduler.runTasks();
+        scheduler.runTasks();
+        assertEquals("DELAY NOT KEPT", 1, runs.size());
+        scheduler.runTasks();
+        assertEquals("REPEAT OR DELAY MISMATCH", 3, runs.size());
+        assertTrue("DELAYED TASK NOT RUN", runs.contains("delayed"));
+
+        repeating.cancel();
+        for (int i = 0; i < 4; i++) {
+            scheduler.runTasks();
+        }
+        assertEquals("CANCELLED TASK RAN", 3, runs.size());
+        assertEquals("TASKS LEFT", 0, scheduler.getPendingCount());
+        assertEquals("RUNS NOT ACCOUNTED", 3L, scheduler.getOwnerStats(owner).getRuns());
+    }
+
+    @Test
+    public void testFailingTaskIsDropped() {
+        TickScheduler scheduler = new TickScheduler(Long.MAX_VALUE);
+        List<String> runs = new ArrayList<String>();
+
+        scheduler.schedule(owner, new Runnable() {
+            @Override
+            public void run() {
+                throw new AssertionError("failing task");
+            }
+        }, 0L, TickScheduler.Priority.HIGH);
+        scheduler.schedule(owner, record(runs, "after"), 0L, TickScheduler.Priority.NORMAL);
+
+        scheduler.runTasks();
+        assertEquals("TASK AFTER FAILURE NOT RUN", 1, runs.size());
+        assertEquals("FAILED TASK KEPT", 0, scheduler.getPendingCount());
+    }
+
+    @Test
+    public void testCallSync() throws Exception {
+        TickScheduler scheduler = new TickScheduler(Long.MAX_VALUE);
+        Future<String> result = scheduler.callSync(owner, new Callable<String>() {
+            @Override
+            public String call() {
+                return "done";
+            }
+        });
+
+        assertFalse("RAN BEFORE TICK", result.isDone());
+        scheduler.runTasks();
+        assertEquals("RESULT MISMATCH", "done", result.get());
+    }
+}
@@ -0,0 +1,99 @@
+package net.canarymod.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Log ring testing, including both overflow policies and several threads logging at once
+ */
+public class LogRingTest {
+
+    @Test
+    public void testOrder() {
+        LogRing ring = new LogRing(8, LogRing.OverflowPolicy.DROP_NEWEST);
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue("OFFER FAILED", ring.offer("line " + i));
+            assertEquals("ORDER MISMATCH", "line " + i, ring.poll());
+        }
+        assertNull("RING NOT EMPTY", ring.poll());
+        assertTrue("RING NOT EMPTY", ring.isEmpty());
+    }
+
+    @Test
+    public void testDropNewest() {
+        LogRing ring = new LogRing(4, LogRing.OverflowPolicy.DROP_NEWEST);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue("OFFER FAILED", ring.offer("line " + i));
+        }
+        assertFalse("OFFER INTO FULL RING", ring.offer("line 4"));
+        assertFalse("OFFER INTO FULL RING", ring.offer("line 5"));
+        assertEquals("DROP COUNT MISMATCH", 2L, ring.getDroppedCount());
+
+        List<String> lines = new ArrayList<String>();
+        assertEquals("DRAIN COUNT MISMATCH", 4, ring.drainTo(lines, 10));
+        assertEquals("KEPT LINE MISMATCH", "line 0", lines.get(0));
+        assertEquals("KEPT LINE MISMATCH", "line 3", lines.get(3));
+    }
+
+    @Test
+    public void testDropOldest() {
+        LogRing ring = new LogRing(4, LogRing.OverflowPolicy.DROP_OLDEST);
+
+        for (int i = 0; i < 6; i++) {
+            ring.offer("line " + i);
+        }
+        assertEquals("DROP COUNT MISMATCH", 2L, ring.getDroppedCount());
+
+        List<String> lines = new ArrayList<String>();
+        assertEquals("DRAIN COUNT MISMATCH", 4, ring.drainTo(lines, 10));
+        assertEquals("KEPT LINE MISMATCH", "line 2", lines.get(0));
+        assertEquals("KEPT LINE MISMATCH", "line 5", lines.get(3));
+    }
+
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        final LogRing ring = new LogRing(64, LogRing.OverflowPolicy.DROP_OLDEST);
+        final int perThread = 20000;
+        Thread[] producers = new Thread[4];
+
+        for (int t = 0; t < producers.length; t++) {
+            producers[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        ring.offer("x");
+                    }
+                }
+            };
+            producers[t].start();
+        }
+        long taken = 0;
+        boolean running = true;
+
+        while (running) {
+            running = false;
+            for (Thread producer : producers) {
+                running |= producer.isAlive();
+            }
+            while (ring.poll() != null) {
+                taken++;
+            }
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        while (ring.poll() != null) {
+            taken++;
+        }
+        assertEquals("LINES LOST OR DUPLICATED", (long) producers.length * perThread, taken + ring.getDroppedCount());
+    }
+}
@@ -0,0 +1,71 @@
+package net.canarymod.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Console writer testing against an in-memory terminal
+ */
+public class SysOutWriterThreadTest {
+
+    @Test
+    public void testBatchWrite() throws IOException {
+        ByteArrayOutputStream terminal = new ByteArrayOutputStream();
+        LogRing ring = new LogRing(16, LogRing.OverflowPolicy.DROP_NEWEST);
+        SysOutWriterThread writer = new SysOutWriterThread(terminal, null, ring, 2);
+
+        ring.offer("\u00a7aone\n");
+        ring.offer("two\n");
+        ring.offer("three\n");
+
+        assertEquals("BATCH SIZE MISMATCH", 2, writer.writeBatch());
+        assertEquals("OUTPUT MISMATCH", "one\ntwo\n", terminal.toString());
+        assertEquals("BATCH SIZE MISMATCH", 1, writer.writeBatch());
+        assertEquals("BATCH SIZE MISMATCH", 0, writer.writeBatch());
+        assertEquals("OUTPUT MISMATCH", "one\ntwo\nthree\n", terminal.toString());
+    }
+
+    @Test
+    public void testDropsReported() throws IOException {
+        ByteArrayOutputStream terminal = new ByteArrayOutputStream();
+        LogRing ring = new LogRing(4, LogRing.OverflowPolicy.DROP_NEWEST);
+        SysOutWriterThread writer = new SysOutWriterThread(terminal, null, ring, 16);
+
+        for (int i = 0; i < 7; i++) {
+            ring.offer("line\n");
+        }
+        writer.writeBatch();
+        assertTrue("DROPS NOT REPORTED", terminal.toString().contains("3 log lines were dropped"));
+        terminal.reset();
+        writer.writeBatch();
+        assertEquals("DROPS REPORTED TWICE", "", terminal.toString());
+    }
+
+    @Test
+    public void testColourTranslation() {
+        StringBuilder plain = new StringBuilder();
+        SysOutWriterThread.appendColoured(plain, "no codes \u00a7 here\u00a7");
+        assertEquals("UNCODED LINE CHANGED", "no codes \u00a7 here\u00a7", plain.toString());
+
+        StringBuilder upper = new StringBuilder();
+        StringBuilder lower = new StringBuilder();
+        SysOutWriterThread.appendColoured(upper, "\u00a7Cred\u00a7Lbold");
+        SysOutWriterThread.appendColoured(lower, "\u00a7cred\u00a7lbold");
+        assertEquals("CODES NOT CASE INSENSITIVE", lower.toString(), upper.toString());
+        assertTrue("CODE LEFT IN LINE", lower.indexOf("\u00a7") < 0);
+
+        for (char c : "klmnopqrKLMNOPQR".toCharArray()) {
+            StringBuilder format = new StringBuilder();
+            SysOutWriterThread.appendColoured(format, "a\u00a7" + c + "b");
+            assertTrue("FORMAT CODE " + c + " LEFT IN LINE", format.indexOf("\u00a7") < 0 && format.toString().startsWith("a"));
+        }
+        StringBuilder stripped = new StringBuilder();
+        SysOutWriterThread.appendColoured(stripped, "\u00a7pa\u00a7Qb");
+        assertTrue("P AND Q NOT STRIPPED", stripped.toString().startsWith("ab"));
+    }
+}